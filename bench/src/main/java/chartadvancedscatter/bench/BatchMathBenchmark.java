@@ -0,0 +1,93 @@
+package chartadvancedscatter.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.BatchMath;
+import chartadvancedscatter.Cone;
+
+// BatchMath kernels on IcoSphere sized batches for each backend
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class BatchMathBenchmark {
+    @Param({"scalar", "simd"})
+    String backend;
+
+    @Param({"320"})
+    int count;
+
+    BatchMath batchMath;
+    double[] aX, aY, aZ, bX, bY, bZ, out, outX, outY, outZ;
+    long[] mask;
+    Cone cone = Cone.fromDegrees(75d);
+
+    @Setup
+    public void setup() {
+        batchMath = BatchMath.select(backend);
+        Random random = new Random(32);
+        aX = fill(random); aY = fill(random); aZ = fill(random);
+        bX = fill(random); bY = fill(random); bZ = fill(random);
+        out = new double[count];
+        outX = new double[count];
+        outY = new double[count];
+        outZ = new double[count];
+        mask = new long[(count + 63) >>> 6];
+    }
+
+    private double[] fill(Random random) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextGaussian();
+        }
+        return values;
+    }
+
+    @Benchmark
+    public double[] dot() {
+        batchMath.dot(aX, aY, aZ, bX, bY, bZ, out, count);
+        return out;
+    }
+
+    @Benchmark
+    public double[] cross() {
+        batchMath.cross(aX, aY, aZ, bX, bY, bZ, outX, outY, outZ, count);
+        return outX;
+    }
+
+    @Benchmark
+    public double[] norm() {
+        System.arraycopy(aX, 0, outX, 0, count);
+        System.arraycopy(aY, 0, outY, 0, count);
+        System.arraycopy(aZ, 0, outZ, 0, count);
+        batchMath.norm(outX, outY, outZ, count);
+        return outX;
+    }
+
+    @Benchmark
+    public double[] angle() {
+        batchMath.angle(aX, aY, aZ, bX, bY, bZ, out, count);
+        return out;
+    }
+
+    @Benchmark
+    public long[] coneMask() {
+        batchMath.coneMask(0.3, -0.2, 0.9, bX, bY, bZ, cone, mask, count);
+        return mask;
+    }
+}
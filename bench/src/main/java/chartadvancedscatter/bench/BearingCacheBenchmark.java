@@ -0,0 +1,73 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.BearingCache;
+import chartadvancedscatter.DeviceTables;
+import chartadvancedscatter.Icosphere;
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.SensorCluster;
+import chartadvancedscatter.Vector3;
+
+// Solve of the demo frame with and without a bearing cache, which always
+// hits here, over IcoSphere levels 2 and 5 (320 and 20480 points). The cost
+// of a cache lookup on its own is lookup.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BearingCacheBenchmark {
+    @Param({"2", "5"})
+    int icoSphereLevel;
+
+    Poser plain;
+    Poser cached;
+    BearingCache cache;
+    PoseEstimate pose;
+    Vector3 bearing;
+    long mask;
+
+    @Setup
+    public void setup() {
+        plain = new Poser(new SensorCluster(DeviceTables.devicePoints, DeviceTables.deviceNormals), Icosphere.level(icoSphereLevel));
+        cache = new BearingCache(4096);
+        cached = new Poser(new SensorCluster(DeviceTables.devicePoints, DeviceTables.deviceNormals), Icosphere.level(icoSphereLevel))
+                .setBearingCache(cache);
+        pose = new PoseEstimate();
+        bearing = new Vector3();
+        plain.getLitSensorAngles();
+        cached.getLitSensorAngles();
+        cached.solve(pose);
+        mask = cached.cluster.visible[0];
+    }
+
+    @Benchmark
+    public PoseEstimate solveUncached() {
+        return plain.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate solveCached() {
+        return cached.solve(pose);
+    }
+
+    @Benchmark
+    public int lookup() {
+        return cache.get(mask, bearing);
+    }
+}
@@ -0,0 +1,73 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.Quaternion;
+import chartadvancedscatter.Vector3;
+
+// Seed latency of the IcoSphere bearing and range stages against the
+// closed form pose, then the whole solve from either, on one frame of a
+// cluster turned 10 degrees. Both seeds refine to the true pose here, past
+// about 20 degrees the IcoSphere stages find no bearing for this frame.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClosedFormBenchmark {
+    Poser heuristic;
+    Poser closedForm;
+    PoseEstimate pose;
+    Vector3 position;
+    Quaternion orientation;
+
+    @Setup
+    public void setup() {
+        heuristic = new Poser();
+        closedForm = new Poser().setClosedFormSeed(true);
+        for (Poser poser : new Poser[] {heuristic, closedForm}) {
+            poser.base1OriginPosition.set(2d, 0.1d, 0.05d);
+            poser.clusterOrientation.setFromAxisRad(0.3d, 1d, 0.2d, Math.toRadians(10d));
+            poser.getLitSensorAngles();
+        }
+        pose = new PoseEstimate();
+        position = new Vector3();
+        orientation = new Quaternion();
+    }
+
+    @Benchmark
+    public Vector3 heuristicSeed() {
+        heuristic.getInitialBearingFromIcoSphere();
+        heuristic.getInitialRangeFromSensorAngles();
+        return heuristic.vectorEstimateFromIcoSphere;
+    }
+
+    @Benchmark
+    public boolean closedFormSeed() {
+        return closedForm.closedForm.estimate(closedForm.cluster, position, orientation);
+    }
+
+    @Benchmark
+    public PoseEstimate solveHeuristic() {
+        return heuristic.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate solveClosedForm() {
+        return closedForm.solve(pose);
+    }
+}
@@ -0,0 +1,257 @@
+package chartadvancedscatter.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import chartadvancedscatter.BaseStation;
+import chartadvancedscatter.BatchMath;
+import chartadvancedscatter.Cone;
+import chartadvancedscatter.DeviceTables;
+import chartadvancedscatter.FastTrig;
+import chartadvancedscatter.MultiBasePoser;
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.Quaternion;
+import chartadvancedscatter.SensorCluster;
+import chartadvancedscatter.Vector3;
+
+// Checks the optional backends against the scalar Vector3 code, FastTrig
+// against Math within its documented bounds, and that fusing more bases does
+// not worsen a pose, and prints the worst differences found. Exits non zero on a mismatch:
+//     java --add-modules jdk.incubator.vector -cp bench/target/benchmarks.jar chartadvancedscatter.bench.EquivalenceCheck
+public class EquivalenceCheck {
+    static final double TOLERANCE = 1e-12;
+    static int failures = 0;
+
+    public static void main(String[] args) {
+        checkBatchMath(BatchMath.scalar());
+        if (BatchMath.simd() == null) {
+            System.out.println("simd: not available, run with --add-modules jdk.incubator.vector");
+        } else {
+            checkBatchMath(BatchMath.simd());
+        }
+        checkFastTrig();
+        checkFastTrigPoser();
+        checkMultiBase();
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    static void report(String name, double worst, double tolerance) {
+        boolean ok = worst <= tolerance;
+        if (!ok) failures++;
+        System.out.printf("%-28s worst %.3e  %s%n", name, worst, ok ? "ok" : "FAIL");
+    }
+
+    static void checkBatchMath(BatchMath batchMath) {
+        // Odd count so every backend also runs its scalar tail
+        final int count = 1027;
+        Random random = new Random(1);
+        double[] aX = new double[count], aY = new double[count], aZ = new double[count];
+        double[] bX = new double[count], bY = new double[count], bZ = new double[count];
+        for (int i = 0; i < count; i++) {
+            aX[i] = random.nextGaussian(); aY[i] = random.nextGaussian(); aZ[i] = random.nextGaussian();
+            bX[i] = random.nextGaussian(); bY[i] = random.nextGaussian(); bZ[i] = random.nextGaussian();
+        }
+        aX[5] = 0d; aY[5] = 0d; aZ[5] = 0d;
+        double[] out = new double[count];
+        double[] outX = new double[count], outY = new double[count], outZ = new double[count];
+        Vector3 a = new Vector3();
+        Vector3 b = new Vector3();
+        Vector3 zero = new Vector3();
+        String name = batchMath.name();
+
+        double worst = 0d;
+        batchMath.dot(aX, aY, aZ, bX, bY, bZ, out, count);
+        for (int i = 0; i < count; i++) {
+            worst = Math.max(worst, Math.abs(out[i] - a.set(aX[i], aY[i], aZ[i]).dot(bX[i], bY[i], bZ[i])));
+        }
+        report(name + " dot", worst, TOLERANCE);
+
+        worst = 0d;
+        batchMath.cross(aX, aY, aZ, bX, bY, bZ, outX, outY, outZ, count);
+        for (int i = 0; i < count; i++) {
+            a.set(aX[i], aY[i], aZ[i]).cross(bX[i], bY[i], bZ[i]);
+            worst = Math.max(worst, a.distance(outX[i], outY[i], outZ[i]));
+        }
+        report(name + " cross", worst, TOLERANCE);
+
+        worst = 0d;
+        System.arraycopy(aX, 0, outX, 0, count);
+        System.arraycopy(aY, 0, outY, 0, count);
+        System.arraycopy(aZ, 0, outZ, 0, count);
+        batchMath.norm(outX, outY, outZ, count);
+        for (int i = 0; i < count; i++) {
+            a.set(aX[i], aY[i], aZ[i]).norm();
+            worst = Math.max(worst, a.distance(outX[i], outY[i], outZ[i]));
+        }
+        report(name + " norm", worst, TOLERANCE);
+
+        worst = 0d;
+        batchMath.angle(aX, aY, aZ, bX, bY, bZ, out, count);
+        for (int i = 0; i < count; i++) {
+            if (i == 5) continue; // Angle to a zero vector is undefined
+            a.set(aX[i], aY[i], aZ[i]);
+            b.set(bX[i], bY[i], bZ[i]);
+            worst = Math.max(worst, Math.abs(out[i] - Poser.angleThreePoints(a, zero, b)));
+        }
+        report(name + " angle", worst, 1e-9);
+
+        // Cone membership may only differ for vectors sitting on the cone
+        // edge within rounding
+        int mismatches = 0;
+        long[] mask = new long[(count + 63) >>> 6];
+        final double maxAngle = Math.toRadians(75d);
+        batchMath.coneMask(0.3, -0.2, 0.9, bX, bY, bZ, Cone.fromRads(maxAngle), mask, count);
+        a.set(0.3, -0.2, 0.9);
+        for (int i = 0; i < count; i++) {
+            b.set(bX[i], bY[i], bZ[i]);
+            double angle = Poser.angleThreePoints(a, zero, b);
+            boolean inside = (mask[i >>> 6] & (1L << i)) != 0L;
+            if ((inside != (angle < maxAngle)) && (Math.abs(angle - maxAngle) > 1e-12)) {
+                mismatches++;
+            }
+        }
+        report(name + " coneMask mismatches", mismatches, 0d);
+    }
+
+    static void checkFastTrig() {
+        // Every table interval over a few turns either side of zero, at
+        // several points within each, then the inverse functions over their
+        // whole domain
+        double worstSin = 0d, worstCos = 0d;
+        for (double x = -20d; x <= 20d; x += 2d * Math.PI / 4096d / 7.3d) {
+            worstSin = Math.max(worstSin, Math.abs(FastTrig.sin(x) - Math.sin(x)));
+            worstCos = Math.max(worstCos, Math.abs(FastTrig.cos(x) - Math.cos(x)));
+        }
+        report("fastTrig sin", worstSin, FastTrig.SIN_MAX_ERROR);
+        report("fastTrig cos", worstCos, FastTrig.SIN_MAX_ERROR);
+
+        double worstAsin = 0d, worstAcos = 0d;
+        for (int i = -1000000; i <= 1000000; i++) {
+            final double x = i / 1e6d;
+            worstAsin = Math.max(worstAsin, Math.abs(FastTrig.asin(x) - Math.asin(x)));
+            worstAcos = Math.max(worstAcos, Math.abs(FastTrig.acos(x) - Math.acos(x)));
+        }
+        report("fastTrig asin", worstAsin, FastTrig.ASIN_MAX_ERROR);
+        report("fastTrig acos", worstAcos, FastTrig.ASIN_MAX_ERROR);
+
+        double worstAtan = 0d, worstAtan2 = 0d;
+        Random random = new Random(2);
+        for (int i = 0; i < 1000000; i++) {
+            final double x = Math.tan((random.nextDouble() - 0.5d) * Math.PI);
+            worstAtan = Math.max(worstAtan, Math.abs(FastTrig.atan(x) - Math.atan(x)));
+            final double y = random.nextGaussian(), z = random.nextGaussian();
+            worstAtan2 = Math.max(worstAtan2, Math.abs(FastTrig.atan2(y, z) - Math.atan2(y, z)));
+        }
+        report("fastTrig atan", worstAtan, FastTrig.ATAN_MAX_ERROR);
+        report("fastTrig atan2", worstAtan2, FastTrig.ATAN_MAX_ERROR);
+
+        int mismatches = 0;
+        final double[] edges = {-1.5d, -1d, -0d, 0d, 1d, 1.5d, Double.NaN};
+        for (double x : edges) {
+            if (Double.isNaN(FastTrig.asin(x)) != Double.isNaN(Math.asin(x))) mismatches++;
+            if (Double.isNaN(FastTrig.acos(x)) != Double.isNaN(Math.acos(x))) mismatches++;
+            for (double y : edges) {
+                if (Double.isNaN(Math.atan2(y, x)) ? !Double.isNaN(FastTrig.atan2(y, x))
+                        : !(Math.abs(FastTrig.atan2(y, x) - Math.atan2(y, x)) <= FastTrig.ATAN_MAX_ERROR)) mismatches++;
+            }
+        }
+        report("fastTrig edge mismatches", mismatches, 0d);
+    }
+
+    // The same frames solved strictly and with FastTrig should land on the
+    // same pose to well within what the sweep timing can resolve
+    static void checkFastTrigPoser() {
+        Poser strict = new Poser();
+        Poser fast = new Poser().setFastTrig(true);
+        PoseEstimate strictPose = new PoseEstimate();
+        PoseEstimate fastPose = new PoseEstimate();
+        Random random = new Random(3);
+        double worstPosition = 0d, worstAngle = 0d;
+        int validMismatches = 0;
+        for (int frame = 0; frame < 2000; frame++) {
+            final double x = 1d + 3d * random.nextDouble(), y = 0.3d * random.nextGaussian(), z = 0.3d * random.nextGaussian();
+            final double angle = Math.toRadians(10d * random.nextDouble());
+            for (Poser poser : new Poser[] {strict, fast}) {
+                poser.base1OriginPosition.set(x, y, z);
+                poser.clusterOrientation.setFromAxisRad(0.3d, 1d, 0.2d, angle);
+                poser.getLitSensorAngles();
+            }
+            strict.solve(strictPose);
+            fast.solve(fastPose);
+            if (strictPose.valid != fastPose.valid) {
+                validMismatches++;
+                continue;
+            }
+            if (!strictPose.valid) continue;
+            worstPosition = Math.max(worstPosition, strictPose.position.distance(fastPose.position));
+            worstAngle = Math.max(worstAngle, 2d * Math.acos(Math.min(1d, Math.abs(strictPose.orientation.dot(fastPose.orientation)))));
+        }
+        report("fastTrig solve validity", validMismatches, 0d);
+        report("fastTrig solve position", worstPosition, 1e-4);
+        report("fastTrig solve orientation", worstAngle, 1e-4);
+    }
+
+    // The same noised frames fused over the first 1 to 4 bases of a room.
+    // Over the frames every count solves, the mean position error must not
+    // grow as bases are added.
+    static void checkMultiBase() {
+        final BaseStation[] room = {
+            new BaseStation(0, new Vector3(-2d, 0d, 0d), new Quaternion()),
+            new BaseStation(1, new Vector3(2d, 0.3d, 0d), new Quaternion().setFromAxisDeg(0d, 0d, 1d, 180d)),
+            new BaseStation(2, new Vector3(0d, -2d, 0.5d), new Quaternion().setFromAxisDeg(0d, 0d, 1d, 90d)),
+            new BaseStation(3, new Vector3(0d, 2d, -0.5d), new Quaternion().setFromAxisDeg(0d, 0d, 1d, -90d))
+        };
+        final MultiBasePoser source = new MultiBasePoser(new SensorCluster(DeviceTables.devicePoints, DeviceTables.deviceNormals), room);
+        final MultiBasePoser[] posers = new MultiBasePoser[room.length];
+        for (int count = 1; count <= room.length; count++) {
+            posers[count - 1] = new MultiBasePoser(new SensorCluster(DeviceTables.devicePoints, DeviceTables.deviceNormals),
+                    Arrays.copyOf(room, count));
+        }
+        final int size = source.posers[0].cluster.size;
+        final double[][] az = new double[room.length][size];
+        final double[][] el = new double[room.length][size];
+        final boolean[][] visible = new boolean[room.length][size];
+        final double[] error = new double[room.length];
+        final double[] errorSum = new double[room.length];
+        final PoseEstimate pose = new PoseEstimate();
+        Random random = new Random(6);
+        int common = 0;
+        for (int frame = 0; frame < 500; frame++) {
+            source.clusterPosition.set(0.2d * random.nextGaussian(), 0.2d * random.nextGaussian(), 0.1d * random.nextGaussian());
+            source.clusterOrientation.setFromAxisRad(0d, 0d, 1d, 0.3d * random.nextGaussian());
+            source.getLitSensorAngles();
+            for (int base = 0; base < room.length; base++) {
+                final SensorCluster c = source.posers[base].cluster;
+                for (int s = 0; s < size; s++) {
+                    az[base][s] = c.az[s] + 1e-4d * random.nextGaussian();
+                    el[base][s] = c.el[s] + 1e-4d * random.nextGaussian();
+                    visible[base][s] = c.isVisible(s);
+                }
+            }
+            boolean allValid = true;
+            for (int count = 1; count <= room.length; count++) {
+                for (int base = 0; base < count; base++) {
+                    posers[count - 1].setSensorAngles(base, az[base], el[base], visible[base]);
+                }
+                posers[count - 1].solve(pose);
+                allValid &= pose.valid;
+                error[count - 1] = pose.position.distance(source.clusterPosition);
+            }
+            if (!allValid) continue;
+            common++;
+            for (int count = 0; count < room.length; count++) {
+                errorSum[count] += error[count];
+            }
+        }
+        System.out.printf("multiBase %d frames all counts solve, mean error (mm)", common);
+        for (int count = 0; count < room.length; count++) {
+            System.out.printf(" %d: %.3f", count + 1, 1e3d * errorSum[count] / common);
+        }
+        System.out.println();
+        report("multiBase frames in common", (common > 0) ? 0d : 1d, 0d);
+        for (int count = 1; count < room.length; count++) {
+            report(String.format("multiBase error %d/%d bases", count + 1, count), errorSum[count] / errorSum[count - 1], 1d);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.Quaternion;
+import chartadvancedscatter.SensorCluster;
+import chartadvancedscatter.Spherical3;
+import chartadvancedscatter.Vector3;
+
+// Vector3, Quaternion and Spherical3 primitives used by the poser stages.
+// Each benchmark resets its target from a fixed source so the values do not
+// drift towards zero or infinity over the run.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MathBenchmark {
+    Vector3 v1;
+    Vector3 v2;
+    Vector3 v3;
+    Vector3 vOut;
+    Quaternion q1;
+    Quaternion q2;
+    Quaternion qOut;
+    Spherical3 sOut;
+    SensorCluster cluster;
+    double[] outX;
+    double[] outY;
+    double[] outZ;
+
+    @Setup
+    public void setup() {
+        v1 = new Vector3(2.0469, -0.0273, -0.0516);
+        v2 = new Vector3(0.0349, 0.0930, -0.0001);
+        v3 = new Vector3(0.7205, -0.1973, 0.6648);
+        vOut = new Vector3();
+        q1 = new Quaternion().setFromAxisDeg(0.3, 0.5, 0.8, 35d);
+        q2 = new Quaternion().setFromAxisDeg(-0.7, 0.1, 0.2, 120d);
+        qOut = new Quaternion();
+        sOut = new Spherical3();
+        cluster = new Poser().cluster;
+        outX = new double[cluster.size];
+        outY = new double[cluster.size];
+        outZ = new double[cluster.size];
+    }
+
+    @Benchmark
+    public Quaternion quaternionMul() {
+        return qOut.setTo(q1).mul(q2);
+    }
+
+    @Benchmark
+    public Quaternion quaternionMulLeft() {
+        return qOut.setTo(q1).mulLeft(q2);
+    }
+
+    @Benchmark
+    public Vector3 quaternionTransform() {
+        return q1.transform(vOut.set(v1));
+    }
+
+    @Benchmark
+    public double[] quaternionTransformCluster() {
+        q1.transform(cluster.posX, cluster.posY, cluster.posZ, outX, outY, outZ, cluster.size);
+        return outX;
+    }
+
+    @Benchmark
+    public Quaternion quaternionSetFromCross() {
+        return qOut.setFromCross(v1, v3);
+    }
+
+    @Benchmark
+    public Quaternion quaternionSetFromAxisRad() {
+        return qOut.setFromAxisRad(v3, 0.61d);
+    }
+
+    @Benchmark
+    public Vector3 vectorNorm() {
+        return vOut.set(v1).norm();
+    }
+
+    @Benchmark
+    public Vector3 vectorCross() {
+        return vOut.set(v1).cross(v2);
+    }
+
+    @Benchmark
+    public double vectorDot() {
+        return v1.dot(v2);
+    }
+
+    @Benchmark
+    public Spherical3 sphericalSetFromVector3() {
+        return sOut.setFromVector3(v1);
+    }
+
+    @Benchmark
+    public double angleThreePoints() {
+        return Poser.angleThreePoints(v1, v2, v3);
+    }
+}
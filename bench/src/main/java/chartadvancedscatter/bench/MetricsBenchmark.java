@@ -0,0 +1,72 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.LatencyHistogram;
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.PoserEvents;
+import chartadvancedscatter.PoserMetrics;
+
+// Cost of recording one latency, and of a full frame with and without the
+// per stage metrics. The flight recorder events are available but not being
+// recorded in the metrics frames, frameWithoutEvents has no event backend.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+    LatencyHistogram histogram;
+    Poser plain;
+    Poser measured;
+    Poser eventless;
+    PoseEstimate pose;
+    long value;
+
+    @Setup
+    public void setup() {
+        histogram = new LatencyHistogram();
+        plain = new Poser();
+        measured = new Poser().setMetrics(new PoserMetrics());
+        eventless = new Poser().setEvents(PoserEvents.none(), 0);
+        pose = new PoseEstimate();
+    }
+
+    @Benchmark
+    public LatencyHistogram record() {
+        value = (value + 7919L) & 0xfffffL;
+        histogram.record(value);
+        return histogram;
+    }
+
+    @Benchmark
+    public PoseEstimate frameWithoutMetrics() {
+        plain.getLitSensorAngles();
+        return plain.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate frameWithoutEvents() {
+        eventless.getLitSensorAngles();
+        return eventless.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate frameWithMetrics() {
+        measured.getLitSensorAngles();
+        return measured.solve(pose);
+    }
+}
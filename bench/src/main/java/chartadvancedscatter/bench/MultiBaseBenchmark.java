@@ -0,0 +1,76 @@
+package chartadvancedscatter.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.BaseStation;
+import chartadvancedscatter.DeviceTables;
+import chartadvancedscatter.MultiBasePoser;
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Quaternion;
+import chartadvancedscatter.SensorCluster;
+import chartadvancedscatter.Vector3;
+
+// Frame latency against the number of base stations, with the bases solved
+// on the calling thread one after another or spread over a pool
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiBaseBenchmark {
+    @Param({"1", "2", "4"})
+    int baseCount;
+
+    @Param({"false", "true"})
+    boolean pooled;
+
+    ExecutorService executor;
+    MultiBasePoser poser;
+    PoseEstimate pose;
+
+    @Setup
+    public void setup() {
+        BaseStation[] room = {
+            new BaseStation(0, new Vector3(-2d, 0d, 0d), new Quaternion()),
+            new BaseStation(1, new Vector3(2d, 0.3d, 0d), new Quaternion().setFromAxisDeg(0d, 0d, 1d, 180d)),
+            new BaseStation(2, new Vector3(0d, -2d, 0.5d), new Quaternion().setFromAxisDeg(0d, 0d, 1d, 90d)),
+            new BaseStation(3, new Vector3(0d, 2d, -0.5d), new Quaternion().setFromAxisDeg(0d, 0d, 1d, -90d))
+        };
+        executor = pooled ? Executors.newFixedThreadPool(baseCount) : null;
+        poser = new MultiBasePoser(new SensorCluster(DeviceTables.devicePoints, DeviceTables.deviceNormals),
+                Arrays.copyOf(room, baseCount), executor);
+        poser.clusterPosition.set(0.05d, 0.02d, 0d);
+        poser.clusterOrientation.setFromAxisDeg(0d, 0d, 1d, 5d);
+        pose = new PoseEstimate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public PoseEstimate frame() {
+        poser.getLitSensorAngles();
+        return poser.solve(pose);
+    }
+}
@@ -0,0 +1,95 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.DeviceTables;
+import chartadvancedscatter.Icosphere;
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.SensorCluster;
+
+// The poser stages on the 32 sensor devicePoints/deviceNormals tables with
+// the base station at its default position, over IcoSphere levels 1, 2, 3
+// and 5 (80, 320, 1280 and 20480 points).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PoserBenchmark {
+    @Param({"1", "2", "3", "5"})
+    int icoSphereLevel;
+
+    Poser poser;
+    Poser hierarchical;
+    PoseEstimate pose;
+
+    @Setup
+    public void setup() {
+        poser = new Poser(new SensorCluster(DeviceTables.devicePoints, DeviceTables.deviceNormals),
+                Icosphere.level(icoSphereLevel));
+        pose = new PoseEstimate();
+        poser.getLitSensorAngles();
+        poser.getInitialBearingFromIcoSphere();
+
+        // Coarse to fine from level 0 down to the same level as the flat search
+        hierarchical = new Poser();
+        hierarchical.setHierarchicalBearing(0, Icosphere.level(icoSphereLevel).maxAngularRadius());
+        hierarchical.getLitSensorAngles();
+    }
+
+    @Benchmark
+    public Poser litSensorAngles() {
+        poser.getLitSensorAngles();
+        return poser;
+    }
+
+    @Benchmark
+    public Poser initialBearingFromIcoSphere() {
+        poser.getInitialBearingFromIcoSphere();
+        return poser;
+    }
+
+    @Benchmark
+    public Poser initialBearingHierarchical() {
+        hierarchical.getInitialBearingHierarchical();
+        return hierarchical;
+    }
+
+    @Benchmark
+    public Poser initialRangeFromSensorAngles() {
+        // The range stage rescales the bearing estimate in place, so restore
+        // the bearing output before each call
+        poser.vectorEstimateFromIcoSphere.set(poser.clusterOriginPosition).sub(poser.baseEstPosnFromIcoSphere);
+        poser.getInitialRangeFromSensorAngles();
+        return poser;
+    }
+
+    @Benchmark
+    public Poser refinePoseFromSensorAngles() {
+        // Start every refinement from the same seed as the demo frame
+        poser.refinedPosition.set(2.1440d, 0d, 0.0501d);
+        poser.refinedOrientation.setToIdent();
+        poser.refinePoseFromSensorAngles();
+        return poser;
+    }
+
+    @Benchmark
+    public PoseEstimate endToEnd() {
+        poser.getLitSensorAngles();
+        return poser.solve(pose);
+    }
+}
@@ -0,0 +1,81 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.RansacPoser;
+
+// RANSAC solve of one frame with some of its lit sensors' angles thrown
+// off as a reflection would, on one worker or split across several. The
+// plain solve of the same frame is for comparison, with outliers it does
+// not find the true pose.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RansacBenchmark {
+    @Param({"0", "2"})
+    int outliers;
+
+    @Param({"1", "4"})
+    int workers;
+
+    Poser plain;
+    RansacPoser ransac;
+    ExecutorService executor;
+    PoseEstimate pose;
+
+    @Setup
+    public void setup() {
+        plain = new Poser();
+        final Poser robust = new Poser();
+        executor = (workers > 1) ? Executors.newFixedThreadPool(workers - 1) : null;
+        ransac = new RansacPoser(robust, executor, workers);
+        for (Poser poser : new Poser[] {plain, robust}) {
+            poser.base1OriginPosition.set(2d, 0.1d, 0.05d);
+            poser.clusterOrientation.setFromAxisRad(0.3d, 1d, 0.2d, Math.toRadians(10d));
+            poser.getLitSensorAngles();
+            int thrown = 0;
+            for (int sensor = 0; (sensor < poser.cluster.size) && (thrown < outliers); sensor++) {
+                if (!poser.cluster.isVisible(sensor)) continue;
+                poser.cluster.az[sensor] += 0.05d;
+                poser.cluster.el[sensor] -= 0.04d;
+                thrown++;
+            }
+        }
+        pose = new PoseEstimate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) executor.shutdown();
+    }
+
+    @Benchmark
+    public PoseEstimate plainSolve() {
+        return plain.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate ransacSolve() {
+        return ransac.solve(pose);
+    }
+}
@@ -0,0 +1,91 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.SensorCluster;
+import chartadvancedscatter.SweepEvent;
+import chartadvancedscatter.SweepFrameAssembler;
+import chartadvancedscatter.SweepRing;
+
+// Per event cost of passing one sweep cycle of 16 devices through the ring
+// and assembling their frames, on one thread. The hit timings are made from
+// the synthesised angles of a pose in front of the base.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SweepIngestBenchmark {
+    static final int DEVICES = 16;
+    static final int EVENTS = 480; // Events in one cycle, checked in setup
+
+    SweepRing ring;
+    SweepFrameAssembler assembler;
+    long[] cycle;
+    long start;
+
+    @Setup
+    public void setup() {
+        final double ticksPerRevolution = SweepFrameAssembler.DEFAULT_TICKS_PER_REVOLUTION;
+        final Poser poser = new Poser();
+        poser.base1OriginPosition.set(2d, 0.1d, 0.05d);
+        poser.getLitSensorAngles();
+        final SensorCluster c = poser.cluster;
+
+        long[] events = new long[2 * DEVICES * (c.litCount + 1)];
+        int count = 0;
+        for (int axis = 0; axis < 2; axis++) {
+            final long sync = axis * (long) (ticksPerRevolution / 2d);
+            for (int device = 0; device < DEVICES; device++) {
+                events[count++] = SweepEvent.sync(device, axis, sync);
+                for (int s = 0; s < c.size; s++) {
+                    if (!c.isVisible(s)) continue;
+                    final double x = Math.cos(c.az[s]) * Math.cos(c.el[s]);
+                    final double across = (axis == SweepEvent.AXIS_HORIZONTAL) ? Math.sin(c.az[s]) : Math.cos(c.az[s]) * Math.sin(c.el[s]);
+                    final double angle = Math.atan(across / x);
+                    events[count++] = SweepEvent.hit(device, s, axis, sync + Math.round((angle / (2d * Math.PI) + 0.25d) * ticksPerRevolution));
+                }
+            }
+        }
+        if (count != EVENTS) {
+            throw new IllegalStateException("One cycle is " + count + " events, not " + EVENTS);
+        }
+        cycle = events;
+
+        SensorCluster[] clusters = new SensorCluster[DEVICES];
+        for (int device = 0; device < DEVICES; device++) {
+            clusters[device] = new SensorCluster(c);
+        }
+        ring = new SweepRing(4096);
+        assembler = new SweepFrameAssembler(clusters, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long ingestCycle() {
+        final long[] events = cycle;
+        final long offset = start;
+        start = (start + (long) SweepFrameAssembler.DEFAULT_TICKS_PER_REVOLUTION) & SweepEvent.TICK_MASK;
+        for (int i = 0; i < events.length; i++) {
+            final long event = events[i];
+            ring.offer((event & ~SweepEvent.TICK_MASK) | ((event + offset) & SweepEvent.TICK_MASK));
+        }
+        while (ring.drain(assembler, 1024) > 0) {
+        }
+        return assembler.framesAssembled;
+    }
+}
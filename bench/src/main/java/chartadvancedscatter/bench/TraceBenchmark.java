@@ -0,0 +1,68 @@
+package chartadvancedscatter.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.TraceBuffer;
+
+// A full frame with tracing off and at DETAIL, the trace formatted onto a
+// stream that discards it. The traced cost is only that of the recording
+// thread, records the formatter has not kept up with are dropped.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceBenchmark {
+    Poser untraced;
+    Poser traced;
+    TraceBuffer trace;
+    PoseEstimate pose;
+
+    @Setup
+    public void setup() {
+        trace = new TraceBuffer(new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        untraced = new Poser();
+        traced = new Poser().setTrace(trace, TraceBuffer.DETAIL);
+        pose = new PoseEstimate();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        trace.close();
+    }
+
+    @Benchmark
+    public PoseEstimate frameUntraced() {
+        untraced.getLitSensorAngles();
+        return untraced.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate frameTraced() {
+        traced.getLitSensorAngles();
+        return traced.solve(pose);
+    }
+}
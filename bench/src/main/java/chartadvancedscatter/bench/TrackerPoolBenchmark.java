@@ -0,0 +1,68 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.Poser;
+import chartadvancedscatter.TrackerPool;
+
+// One tick of a pool of devices, each synthesising and solving a frame that
+// moves a little every tick. The pool's own numbers are printed at the end.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackerPoolBenchmark {
+    @Param({"64"})
+    int devices;
+
+    @Param({"1", "2", "4"})
+    int workers;
+
+    TrackerPool pool;
+
+    @Setup
+    public void setup() {
+        final Poser[] posers = new Poser[devices];
+        pool = new TrackerPool(workers);
+        for (int device = 0; device < devices; device++) {
+            posers[device] = new Poser();
+            pool.addDevice(posers[device]);
+        }
+        pool.setFrameLoader(new TrackerPool.FrameLoader() {
+            public boolean load(int device, long tick) {
+                Poser poser = posers[device];
+                poser.base1OriginPosition.set(2d + 0.001d * (tick % 100), 0.01d * device / devices, 0d);
+                poser.getLitSensorAngles();
+                return true;
+            }
+        });
+        pool.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        System.out.println();
+        System.out.println(pool);
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long tick() {
+        return pool.tick();
+    }
+}
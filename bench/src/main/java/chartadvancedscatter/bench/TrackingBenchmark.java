@@ -0,0 +1,62 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.PoseTracker;
+import chartadvancedscatter.Poser;
+
+// Per frame cost of a device moving smoothly at 120Hz, solved cold every
+// frame or warm started by the tracker. The angles are synthesised outside
+// the solve in both.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackingBenchmark {
+    Poser cold;
+    Poser tracked;
+    PoseTracker tracker;
+    PoseEstimate pose;
+    long frame;
+
+    @Setup
+    public void setup() {
+        cold = new Poser();
+        tracked = new Poser();
+        tracker = new PoseTracker(tracked);
+        pose = new PoseEstimate();
+    }
+
+    private void nextFrame(Poser poser) {
+        final double t = (frame++ % 12000) / 120d;
+        poser.base1OriginPosition.set(2d + 0.3d * Math.sin(t), 0.2d * Math.sin(0.7d * t), 0.1d * Math.cos(0.5d * t));
+        poser.clusterOrientation.setFromAxisRad(0.2d, 0.3d, 1d, 0.15d * Math.sin(0.9d * t));
+        poser.getLitSensorAngles();
+    }
+
+    @Benchmark
+    public PoseEstimate coldStart() {
+        nextFrame(cold);
+        return cold.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate warmStart() {
+        nextFrame(tracked);
+        return tracker.solve(pose);
+    }
+}
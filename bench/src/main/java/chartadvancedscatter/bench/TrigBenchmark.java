@@ -0,0 +1,131 @@
+package chartadvancedscatter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.FastTrig;
+import chartadvancedscatter.PoseEstimate;
+import chartadvancedscatter.Poser;
+
+// FastTrig against Math over a block of sweep sized angles, then the angle
+// synthesis and a whole solve with the poser in strict and fast trig modes.
+// The per function benchmarks cover ANGLES inputs each.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrigBenchmark {
+    static final int ANGLES = 256;
+
+    double[] angles;
+    double[] ratios; // In [-1, 1]
+    Poser strict;
+    Poser fast;
+    PoseEstimate pose;
+
+    @Setup
+    public void setup() {
+        angles = new double[ANGLES];
+        ratios = new double[ANGLES];
+        for (int i = 0; i < ANGLES; i++) {
+            angles[i] = (i - ANGLES / 2) * (1.2d / ANGLES); // About +-35 degrees
+            ratios[i] = Math.sin(angles[i]);
+        }
+        strict = new Poser();
+        fast = new Poser().setFastTrig(true);
+        for (Poser poser : new Poser[] {strict, fast}) {
+            poser.base1OriginPosition.set(2d, 0.1d, 0.05d);
+            poser.clusterOrientation.setFromAxisRad(0.3d, 1d, 0.2d, Math.toRadians(10d));
+            poser.getLitSensorAngles();
+        }
+        pose = new PoseEstimate();
+    }
+
+    @Benchmark
+    public double mathSinCos() {
+        double sum = 0d;
+        for (int i = 0; i < ANGLES; i++) {
+            sum += Math.sin(angles[i]) * Math.cos(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double fastSinCos() {
+        double sum = 0d;
+        for (int i = 0; i < ANGLES; i++) {
+            sum += FastTrig.sin(angles[i]) * FastTrig.cos(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double mathAsinAcos() {
+        double sum = 0d;
+        for (int i = 0; i < ANGLES; i++) {
+            sum += Math.asin(ratios[i]) + Math.acos(ratios[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double fastAsinAcos() {
+        double sum = 0d;
+        for (int i = 0; i < ANGLES; i++) {
+            sum += FastTrig.asin(ratios[i]) + FastTrig.acos(ratios[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double mathAtan() {
+        double sum = 0d;
+        for (int i = 0; i < ANGLES; i++) {
+            sum += Math.atan(angles[i]) + Math.atan2(ratios[i], 0.7d);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double fastAtan() {
+        double sum = 0d;
+        for (int i = 0; i < ANGLES; i++) {
+            sum += FastTrig.atan(angles[i]) + FastTrig.atan2(ratios[i], 0.7d);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Poser anglesStrict() {
+        strict.getLitSensorAngles();
+        return strict;
+    }
+
+    @Benchmark
+    public Poser anglesFast() {
+        fast.getLitSensorAngles();
+        return fast;
+    }
+
+    @Benchmark
+    public PoseEstimate solveStrict() {
+        return strict.solve(pose);
+    }
+
+    @Benchmark
+    public PoseEstimate solveFast() {
+        return fast.solve(pose);
+    }
+}
@@ -0,0 +1,70 @@
+package chartadvancedscatter.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chartadvancedscatter.SensorCluster;
+import chartadvancedscatter.SensorDiameter;
+
+// Widest lit pair on synthetic clusters, hull and calipers against the all
+// pairs scan it replaced
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WidestPairBenchmark {
+    @Param({"32", "256", "1024"})
+    int clusterSize;
+
+    SensorCluster cluster;
+    SensorDiameter diameter;
+
+    @Setup
+    public void setup() {
+        cluster = new SensorCluster(clusterSize);
+        diameter = new SensorDiameter(clusterSize);
+        Random random = new Random(32);
+        for (int sensor = 0; sensor < clusterSize; sensor++) {
+            cluster.az[sensor] = random.nextGaussian() * 0.05d;
+            cluster.el[sensor] = random.nextGaussian() * 0.05d;
+            cluster.setVisible(sensor, random.nextInt(3) != 0);
+        }
+        cluster.updateLitCount();
+    }
+
+    @Benchmark
+    public double hullAndCalipers() {
+        diameter.find(cluster);
+        return diameter.distanceSq;
+    }
+
+    @Benchmark
+    public double allPairs() {
+        final SensorCluster c = cluster;
+        double widest = 0d;
+        for (int outer = 0; outer < c.size; outer++) {
+            if (!c.isVisible(outer)) continue;
+            for (int inner = outer + 1; inner < c.size; inner++) {
+                if (!c.isVisible(inner)) continue;
+                double azDiff = c.az[outer] - c.az[inner];
+                double elDiff = c.el[outer] - c.el[inner];
+                widest = Math.max(widest, (azDiff * azDiff) + (elDiff * elDiff));
+            }
+        }
+        return widest;
+    }
+}
@@ -0,0 +1,119 @@
+package chartadvancedscatter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// jdk.jfr backend for PoserEvents, one event type per stage. They are
+// disabled unless a recording enables them, and begin checks that before
+// anything is allocated.
+final class JfrPoserEvents extends PoserEvents {
+    private final EventType[] types = new EventType[PoserMetrics.STAGES];
+
+    JfrPoserEvents() {
+        types[PoserMetrics.ANGLES] = EventType.getEventType(Angles.class);
+        types[PoserMetrics.CLOSED_FORM] = EventType.getEventType(ClosedForm.class);
+        types[PoserMetrics.BEARING] = EventType.getEventType(Bearing.class);
+        types[PoserMetrics.RANGE] = EventType.getEventType(Range.class);
+        types[PoserMetrics.REFINE] = EventType.getEventType(Refine.class);
+        types[PoserMetrics.SOLVE] = EventType.getEventType(Solve.class);
+    }
+
+    public String name() {
+        return "jfr";
+    }
+
+    public Object begin(int stage) {
+        if (!types[stage].isEnabled()) {
+            return null;
+        }
+        final StageEvent event;
+        switch (stage) {
+            case PoserMetrics.ANGLES: event = new Angles(); break;
+            case PoserMetrics.CLOSED_FORM: event = new ClosedForm(); break;
+            case PoserMetrics.BEARING: event = new Bearing(); break;
+            case PoserMetrics.RANGE: event = new Range(); break;
+            case PoserMetrics.REFINE: event = new Refine(); break;
+            default: event = new Solve(); break;
+        }
+        event.begin();
+        return event;
+    }
+
+    public void commit(Object begun, int device, int litSensors, int icoSpherePoints, int iterations, double residualRms) {
+        final StageEvent event = (StageEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.device = device;
+            event.litSensors = litSensors;
+            event.icoSpherePoints = icoSpherePoints;
+            event.iterations = iterations;
+            event.residualRms = residualRms;
+            event.commit();
+        }
+    }
+
+    @Category("Poser")
+    @Enabled(false)
+    @StackTrace(false)
+    abstract static class StageEvent extends Event {
+        @Label("Device")
+        int device;
+
+        @Label("Lit Sensors")
+        int litSensors;
+
+        @Label("IcoSphere Points")
+        @Description("IcoSphere points within the FoR of every lit sensor")
+        int icoSpherePoints;
+
+        @Label("Iterations")
+        @Description("Refinement iterations, zero before the refinement")
+        int iterations;
+
+        @Label("Residual RMS")
+        @Description("Radians, NaN when the pose was not refined")
+        double residualRms;
+    }
+
+    @Name("chartadvancedscatter.PoserAngles")
+    @Label("Poser Angles")
+    @Description("Sensor visibility and sweep angles")
+    static final class Angles extends StageEvent {
+    }
+
+    @Name("chartadvancedscatter.PoserClosedForm")
+    @Label("Poser Closed Form")
+    @Description("Closed form pose seed")
+    static final class ClosedForm extends StageEvent {
+    }
+
+    @Name("chartadvancedscatter.PoserBearing")
+    @Label("Poser Bearing")
+    @Description("IcoSphere bearing estimate")
+    static final class Bearing extends StageEvent {
+    }
+
+    @Name("chartadvancedscatter.PoserRange")
+    @Label("Poser Range")
+    @Description("Range estimate from the widest lit sensor pair")
+    static final class Range extends StageEvent {
+    }
+
+    @Name("chartadvancedscatter.PoserRefine")
+    @Label("Poser Refine")
+    @Description("Least squares refinement of position and orientation")
+    static final class Refine extends StageEvent {
+    }
+
+    @Name("chartadvancedscatter.PoserSolve")
+    @Label("Poser Solve")
+    @Description("One frame end to end")
+    static final class Solve extends StageEvent {
+    }
+}
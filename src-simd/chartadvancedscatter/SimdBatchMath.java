@@ -0,0 +1,139 @@
+package chartadvancedscatter;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// jdk.incubator.vector backend for BatchMath. Compile and run with
+// --add-modules jdk.incubator.vector, BatchMath falls back to the scalar
+// backend when this class cannot be loaded. Each kernel runs whole vectors
+// of SPECIES lanes and finishes the tail with scalar code.
+final class SimdBatchMath extends BatchMath {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static double CLOSE_ENOUGH_TO_ZERO = 0.000000000000001;
+
+    public String name() {
+        return "simd" + LANES;
+    }
+
+    public void dot(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ, double[] out, int count) {
+        final int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, aX, i).mul(DoubleVector.fromArray(SPECIES, bX, i));
+            DoubleVector y = DoubleVector.fromArray(SPECIES, aY, i).mul(DoubleVector.fromArray(SPECIES, bY, i));
+            DoubleVector z = DoubleVector.fromArray(SPECIES, aZ, i).mul(DoubleVector.fromArray(SPECIES, bZ, i));
+            x.add(y).add(z).intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            out[i] = (aX[i] * bX[i]) + (aY[i] * bY[i]) + (aZ[i] * bZ[i]);
+        }
+    }
+
+    public void cross(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ,
+            double[] outX, double[] outY, double[] outZ, int count) {
+        final int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector ax = DoubleVector.fromArray(SPECIES, aX, i);
+            DoubleVector ay = DoubleVector.fromArray(SPECIES, aY, i);
+            DoubleVector az = DoubleVector.fromArray(SPECIES, aZ, i);
+            DoubleVector bx = DoubleVector.fromArray(SPECIES, bX, i);
+            DoubleVector by = DoubleVector.fromArray(SPECIES, bY, i);
+            DoubleVector bz = DoubleVector.fromArray(SPECIES, bZ, i);
+            ay.mul(bz).sub(az.mul(by)).intoArray(outX, i);
+            az.mul(bx).sub(ax.mul(bz)).intoArray(outY, i);
+            ax.mul(by).sub(ay.mul(bx)).intoArray(outZ, i);
+        }
+        for (; i < count; i++) {
+            final double x = aY[i] * bZ[i] - aZ[i] * bY[i];
+            final double y = aZ[i] * bX[i] - aX[i] * bZ[i];
+            final double z = aX[i] * bY[i] - aY[i] * bX[i];
+            outX[i] = x;
+            outY[i] = y;
+            outZ[i] = z;
+        }
+    }
+
+    public void norm(double[] x, double[] y, double[] z, int count) {
+        final int bound = SPECIES.loopBound(count);
+        final DoubleVector one = DoubleVector.broadcast(SPECIES, 1d);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+            DoubleVector vz = DoubleVector.fromArray(SPECIES, z, i);
+            DoubleVector lengthSq = vx.mul(vx).add(vy.mul(vy)).add(vz.mul(vz));
+            VectorMask<Double> nonZero = lengthSq.compare(VectorOperators.GT, CLOSE_ENOUGH_TO_ZERO);
+            DoubleVector scale = one.div(lengthSq.sqrt()).blend(one, nonZero.not());
+            vx.mul(scale).intoArray(x, i);
+            vy.mul(scale).intoArray(y, i);
+            vz.mul(scale).intoArray(z, i);
+        }
+        for (; i < count; i++) {
+            final double lengthSq = (x[i] * x[i]) + (y[i] * y[i]) + (z[i] * z[i]);
+            if (lengthSq > CLOSE_ENOUGH_TO_ZERO) {
+                final double scale = 1d / Math.sqrt(lengthSq);
+                x[i] *= scale;
+                y[i] *= scale;
+                z[i] *= scale;
+            }
+        }
+    }
+
+    public void angle(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ, double[] out, int count) {
+        final int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector ax = DoubleVector.fromArray(SPECIES, aX, i);
+            DoubleVector ay = DoubleVector.fromArray(SPECIES, aY, i);
+            DoubleVector az = DoubleVector.fromArray(SPECIES, aZ, i);
+            DoubleVector bx = DoubleVector.fromArray(SPECIES, bX, i);
+            DoubleVector by = DoubleVector.fromArray(SPECIES, bY, i);
+            DoubleVector bz = DoubleVector.fromArray(SPECIES, bZ, i);
+            DoubleVector dot = ax.mul(bx).add(ay.mul(by)).add(az.mul(bz));
+            DoubleVector lengthSqA = ax.mul(ax).add(ay.mul(ay)).add(az.mul(az));
+            DoubleVector lengthSqB = bx.mul(bx).add(by.mul(by)).add(bz.mul(bz));
+            dot.div(lengthSqA.mul(lengthSqB).sqrt()).max(-1d).min(1d)
+                    .lanewise(VectorOperators.ACOS).intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            final double dot = (aX[i] * bX[i]) + (aY[i] * bY[i]) + (aZ[i] * bZ[i]);
+            final double lengthSqA = (aX[i] * aX[i]) + (aY[i] * aY[i]) + (aZ[i] * aZ[i]);
+            final double lengthSqB = (bX[i] * bX[i]) + (bY[i] * bY[i]) + (bZ[i] * bZ[i]);
+            out[i] = Math.acos(Quaternion.clamp(dot / Math.sqrt(lengthSqA * lengthSqB), -1d, 1d));
+        }
+    }
+
+    // Vector sqrt is cheap here, so the lanes test dot > cos * |dir| * |v|
+    // directly rather than the squared form used by Cone
+    public void coneMask(double dirX, double dirY, double dirZ,
+            double[] vX, double[] vY, double[] vZ, Cone cone, long[] mask, int count) {
+        clearMask(mask, count);
+        final double cosMax = cone.cosHalfAngle;
+        final double dirLengthSq = (dirX * dirX) + (dirY * dirY) + (dirZ * dirZ);
+        final int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, vX, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, vY, i);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, vZ, i);
+            DoubleVector dot = x.mul(dirX).add(y.mul(dirY)).add(z.mul(dirZ));
+            DoubleVector lengthSq = x.mul(x).add(y.mul(y)).add(z.mul(z));
+            long bits = dot.compare(VectorOperators.GT, lengthSq.mul(dirLengthSq).sqrt().mul(cosMax)).toLong();
+            mask[i >>> 6] |= bits << (i & 63);
+        }
+        for (; i < count; i++) {
+            final double dot = (dirX * vX[i]) + (dirY * vY[i]) + (dirZ * vZ[i]);
+            final double lengthSq = (vX[i] * vX[i]) + (vY[i] * vY[i]) + (vZ[i] * vZ[i]);
+            if (dot > cosMax * Math.sqrt(dirLengthSq * lengthSq)) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package chartadvancedscatter;
+
+// One lighthouse base station. The pose is in the room frame, a cluster at T
+// with orientation R puts sensor p at B' (T + R p - o) in the base's frame,
+// where o and B are the position and orientation below.
+public class BaseStation {
+    public final int id;
+    public Vector3 position = new Vector3(); // meters
+    public Quaternion orientation = new Quaternion();
+
+    public BaseStation (int id) {
+        this.id = id;
+    }
+
+    public BaseStation (int id, Vector3 position, Quaternion orientation) {
+        this.id = id;
+        this.position.set(position);
+        this.orientation.setTo(orientation);
+    }
+
+    public String toString () {
+        return "Base" + id + "{" + position + "," + orientation + "}";
+    }
+
+    // Room frame position into this base's frame, B' (in - o)
+    public Vector3 toBase (final Vector3 in, Vector3 out) {
+        out.set(in).sub(position);
+        return orientation.transformInverse(out, out);
+    }
+
+    // Base frame position into the room frame, B in + o
+    public Vector3 toRoom (final Vector3 in, Vector3 out) {
+        return orientation.transform(in, out).add(position);
+    }
+
+    // Base frame orientation into the room frame, B in
+    public Quaternion toRoom (final Quaternion in, Quaternion out) {
+        final double x = in.x, y = in.y, z = in.z, w = in.w;
+        return out.setTo(orientation).mul(x, y, z, w);
+    }
+
+    // Room frame orientation into this base's frame, B' in
+    public Quaternion toBase (final Quaternion in, Quaternion out) {
+        final double x = in.x, y = in.y, z = in.z, w = in.w;
+        return out.setTo(-orientation.x, -orientation.y, -orientation.z, orientation.w).mul(x, y, z, w);
+    }
+}
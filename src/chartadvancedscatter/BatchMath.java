@@ -0,0 +1,80 @@
+package chartadvancedscatter;
+
+// Batched forms of the Vector3 maths over structure of arrays inputs. The
+// scalar backend is always available, the SIMD backend (SimdBatchMath, built
+// from src-simd against jdk.incubator.vector) is picked up when it is on the
+// class path and the module has been added with
+// --add-modules jdk.incubator.vector.
+//
+// The backend is chosen with the chartadvancedscatter.batchMath system
+// property (scalar, simd or auto, default auto) or at runtime with select().
+public abstract class BatchMath {
+    private static final BatchMath SCALAR = new ScalarBatchMath();
+    private static final BatchMath SIMD = loadSimd();
+    private static volatile BatchMath current = select(System.getProperty("chartadvancedscatter.batchMath", "auto"));
+
+    public abstract String name();
+
+    // out[i] = a[i] . b[i]
+    public abstract void dot(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ, double[] out, int count);
+
+    // out[i] = a[i] x b[i], out may be a or b
+    public abstract void cross(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ,
+            double[] outX, double[] outY, double[] outZ, int count);
+
+    // Normalise in place, zero length vectors are left as they are
+    public abstract void norm(double[] x, double[] y, double[] z, int count);
+
+    // out[i] = angle in radians between a[i] and b[i]
+    public abstract void angle(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ, double[] out, int count);
+
+    // Set bit i of mask when v[i] is inside the cone around dir, the bits of
+    // mask covering count are cleared first
+    public abstract void coneMask(double dirX, double dirY, double dirZ,
+            double[] vX, double[] vY, double[] vZ, Cone cone, long[] mask, int count);
+
+
+    public static BatchMath get() {
+        return current;
+    }
+
+    public static BatchMath scalar() {
+        return SCALAR;
+    }
+
+    // The SIMD backend, or null when it is not available in this JVM
+    public static BatchMath simd() {
+        return SIMD;
+    }
+
+    // Switch backend, unknown names or an unavailable SIMD backend fall back
+    // to scalar. Returns the backend now in use.
+    public static BatchMath select(String backend) {
+        BatchMath selected = SCALAR;
+        if (("simd".equals(backend) || "auto".equals(backend)) && (SIMD != null)) {
+            selected = SIMD;
+        }
+        current = selected;
+        return selected;
+    }
+
+    private static BatchMath loadSimd() {
+        try {
+            return (BatchMath) Class.forName("chartadvancedscatter.SimdBatchMath").getDeclaredConstructor().newInstance();
+        } catch (Throwable notAvailable) {
+            // Either the class was not built or jdk.incubator.vector is not
+            // in the module graph
+            return null;
+        }
+    }
+
+    static void clearMask(long[] mask, int count) {
+        int words = (count + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            mask[word] = 0L;
+        }
+    }
+}
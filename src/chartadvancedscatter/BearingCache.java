@@ -0,0 +1,191 @@
+package chartadvancedscatter;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+// Bounded cache of bearing stage results keyed by the lit sensor mask. For
+// one device geometry and bearing configuration the IcoSphere bearing only
+// depends on which sensors are lit, and only a few thousand patterns turn up
+// in practice, so a hit skips the stage. The mask is the first visible word,
+// clusters of more than 64 sensors are not cached.
+//
+// The table is split into sets of WAYS entries picked by a hash of the
+// mask, each set evicting by CLOCK: a hit marks its entry and the hand
+// passes over marked entries once, clearing the mark, before evicting.
+// Lookups read under an optimistic StampedLock stamp and only take the read
+// lock when a write got in the way, inserts take the write lock. Any number
+// of posers on any threads can share a cache, as long as they share the
+// geometry and bearing configuration it was filled with.
+public class BearingCache {
+    private static final int WAYS = 8;
+    private static final long EMPTY = 0L; // No sensors lit, never cached
+
+    private final int setMask;
+    private final long[] keys;
+    private final double[] bearing; // Mean IcoSphere point x, y, z per entry
+    private final int[] points;
+    private final boolean[] referenced; // Set on a hit without the lock, a lost mark only costs an early eviction
+    private final int[] hands;
+    private final StampedLock lock = new StampedLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // capacity is rounded up to a power of two of at least WAYS entries
+    public BearingCache(int capacity) {
+        if ((capacity < 1) || (capacity > (1 << 24))) {
+            throw new IllegalArgumentException("Bearing cache capacity " + capacity + " is outside 1..2^24");
+        }
+        final int size = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+        setMask = size / WAYS - 1;
+        keys = new long[size];
+        bearing = new double[3 * size];
+        points = new int[size];
+        referenced = new boolean[size];
+        hands = new int[size / WAYS];
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    // Copy the cached mean bearing of mask into out and return its IcoSphere
+    // point count, or -1 when mask is not cached
+    public int get(long mask, Vector3 out) {
+        if (mask == EMPTY) {
+            misses.increment();
+            return -1;
+        }
+        final int first = setOf(mask);
+        long stamp = lock.tryOptimisticRead();
+        int slot = find(first, mask);
+        double x = 0d, y = 0d, z = 0d;
+        int count = -1;
+        if (slot >= 0) {
+            x = bearing[3 * slot];
+            y = bearing[3 * slot + 1];
+            z = bearing[3 * slot + 2];
+            count = points[slot];
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                slot = find(first, mask);
+                if (slot >= 0) {
+                    x = bearing[3 * slot];
+                    y = bearing[3 * slot + 1];
+                    z = bearing[3 * slot + 2];
+                    count = points[slot];
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (slot < 0) {
+            misses.increment();
+            return -1;
+        }
+        referenced[slot] = true;
+        hits.increment();
+        out.set(x, y, z);
+        return count;
+    }
+
+    // Cache the mean bearing and IcoSphere point count of mask
+    public void put(long mask, Vector3 meanBearing, int count) {
+        if (mask == EMPTY) {
+            return;
+        }
+        final int first = setOf(mask);
+        final long stamp = lock.writeLock();
+        try {
+            int slot = find(first, mask);
+            if (slot < 0) {
+                slot = victim(first);
+            }
+            keys[slot] = mask;
+            bearing[3 * slot] = meanBearing.x;
+            bearing[3 * slot + 1] = meanBearing.y;
+            bearing[3 * slot + 2] = meanBearing.z;
+            points[slot] = count;
+            referenced[slot] = false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Forget every entry, for when the geometry or bearing settings change
+    public void clear() {
+        final long stamp = lock.writeLock();
+        try {
+            for (int slot = 0; slot < keys.length; slot++) {
+                keys[slot] = EMPTY;
+                referenced[slot] = false;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private int setOf(long mask) {
+        long hash = mask * 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 29;
+        return ((int) hash & setMask) * WAYS;
+    }
+
+    private int find(int first, long mask) {
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys[slot] == mask) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // An empty entry of the set, otherwise the first unmarked one from the
+    // hand. Called under the write lock.
+    private int victim(int first) {
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys[slot] == EMPTY) {
+                return slot;
+            }
+        }
+        final int set = first / WAYS;
+        while (true) {
+            final int slot = first + hands[set];
+            hands[set] = (hands[set] + 1) & (WAYS - 1);
+            if (!referenced[slot]) {
+                evictions.increment();
+                return slot;
+            }
+            referenced[slot] = false;
+        }
+    }
+
+
+    // =================================================================
+    //                           Statistics
+    // =================================================================
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        final long hit = hits.sum();
+        final long total = hit + misses.sum();
+        return (total == 0) ? 0d : (double) hit / total;
+    }
+
+    public String toString() {
+        return String.format("BearingCache(%d entries, %d hits, %d misses, %.1f%% hit rate, %d evictions)",
+                keys.length, getHitCount(), getMissCount(), 100d * getHitRate(), getEvictionCount());
+    }
+}
@@ -0,0 +1,73 @@
+package chartadvancedscatter;
+
+// Layout of a capture file, all values little endian:
+//
+//   header      HEADER_SIZE bytes
+//     int       MAGIC
+//     int       VERSION
+//     int       sensor count
+//     int       lit mask words, (sensors + 63) / 64
+//     int       record size in bytes
+//     int       offset of the first record
+//     ...       zero up to HEADER_SIZE
+//   geometry    per sensor posX, posY, posZ, normX, normY, normZ doubles
+//   records     fixed size, one per frame, to the end of the file
+//     double    frame time, seconds
+//     int       device
+//     int       lit sensor count
+//     long[]    lit mask words
+//     double[]  az per sensor, zero when not lit
+//     double[]  el per sensor, zero when not lit
+//     double    pose position x, y, z
+//     double    pose orientation x, y, z, w
+//     double    pose residual RMS
+//     int       pose lit sensor count
+//     int       pose IcoSphere point count
+//     int       pose valid, 0 or 1
+//     int       zero
+//
+// Doubles are stored as their raw bits so a replayed frame is the recorded
+// one exactly. A partial record at the end of a file, from a capture that
+// was not closed, is ignored.
+public final class CaptureFormat {
+    public static final int MAGIC = 0x434f4433; // "3DOC" in file order
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+
+    // Offsets within a record
+    static final int TIME = 0;
+    static final int DEVICE = 8;
+    static final int LIT_COUNT = 12;
+    static final int MASK = 16;
+
+    private CaptureFormat () {
+    }
+
+    public static int maskWords (int sensorCount) {
+        return (sensorCount + 63) >>> 6;
+    }
+
+    public static int geometrySize (int sensorCount) {
+        return 6 * 8 * sensorCount;
+    }
+
+    public static int dataOffset (int sensorCount) {
+        return HEADER_SIZE + geometrySize(sensorCount);
+    }
+
+    static int azOffset (int sensorCount) {
+        return MASK + 8 * maskWords(sensorCount);
+    }
+
+    static int elOffset (int sensorCount) {
+        return azOffset(sensorCount) + 8 * sensorCount;
+    }
+
+    static int poseOffset (int sensorCount) {
+        return elOffset(sensorCount) + 8 * sensorCount;
+    }
+
+    public static int recordSize (int sensorCount) {
+        return poseOffset(sensorCount) + 8 * 8 + 4 * 4;
+    }
+}
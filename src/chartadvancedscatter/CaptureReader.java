@@ -0,0 +1,185 @@
+package chartadvancedscatter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Replays a capture file written in CaptureFormat. The records are read in
+// place from a memory mapped window of the file, moved along as the records
+// are visited, so a capture of any length streams through the poser at page
+// cache speed and loading a frame allocates nothing. Records can be read in
+// any order but sequential reads only remap once per window.
+//
+// Not thread safe. Threads replaying the same file should open a reader
+// each, the mappings share the page cache.
+public class CaptureReader implements Closeable {
+    private static final long WINDOW_BYTES = 1L << 28; // 256MB mapped at a time
+
+    public final int sensorCount;
+    private final int recordSize;
+    private final int azOffset;
+    private final int elOffset;
+    private final int poseOffset;
+    private final long dataOffset;
+    private final long recordCount;
+    private final long windowRecords;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final double[][] geometry = new double[6][];
+
+    private MappedByteBuffer window;
+    private long windowFirst; // Index of the window's first record
+    private long windowCount; // Records in the window
+    private long next; // Record read by next()
+
+    public CaptureReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            channel = file.getChannel();
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), CaptureFormat.HEADER_SIZE));
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if ((header.limit() < CaptureFormat.HEADER_SIZE) || (header.getInt(0) != CaptureFormat.MAGIC)) {
+                throw new IOException(path + " is not a capture file");
+            }
+            if (header.getInt(4) != CaptureFormat.VERSION) {
+                throw new IOException(path + " is capture version " + header.getInt(4) + ", only " + CaptureFormat.VERSION + " can be read");
+            }
+            sensorCount = header.getInt(8);
+            recordSize = header.getInt(16);
+            dataOffset = header.getInt(20);
+            if ((sensorCount <= 0) || (recordSize != CaptureFormat.recordSize(sensorCount))
+                    || (dataOffset != CaptureFormat.dataOffset(sensorCount)) || (channel.size() < dataOffset)) {
+                throw new IOException(path + " has a damaged capture header");
+            }
+            azOffset = CaptureFormat.azOffset(sensorCount);
+            elOffset = CaptureFormat.elOffset(sensorCount);
+            poseOffset = CaptureFormat.poseOffset(sensorCount);
+            recordCount = (channel.size() - dataOffset) / recordSize;
+            windowRecords = Math.max(1L, WINDOW_BYTES / recordSize);
+
+            final MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, CaptureFormat.HEADER_SIZE, CaptureFormat.geometrySize(sensorCount));
+            table.order(ByteOrder.LITTLE_ENDIAN);
+            for (int column = 0; column < 6; column++) {
+                geometry[column] = new double[sensorCount];
+                for (int s = 0; s < sensorCount; s++) {
+                    geometry[column][s] = table.getDouble(8 * (6 * s + column));
+                }
+            }
+        } catch (IOException failed) {
+            file.close();
+            throw failed;
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // A new cluster with the recorded sensor geometry
+    public SensorCluster newCluster() {
+        final SensorCluster c = new SensorCluster(sensorCount);
+        System.arraycopy(geometry[0], 0, c.posX, 0, sensorCount);
+        System.arraycopy(geometry[1], 0, c.posY, 0, sensorCount);
+        System.arraycopy(geometry[2], 0, c.posZ, 0, sensorCount);
+        System.arraycopy(geometry[3], 0, c.normX, 0, sensorCount);
+        System.arraycopy(geometry[4], 0, c.normY, 0, sensorCount);
+        System.arraycopy(geometry[5], 0, c.normZ, 0, sensorCount);
+        return c;
+    }
+
+    // Index of the record next() reads
+    public long position() {
+        return next;
+    }
+
+    public CaptureReader seek(long record) {
+        next = record;
+        return this;
+    }
+
+    public boolean hasNext() {
+        return next < recordCount;
+    }
+
+    // Load the next record's angles and lit mask into frame, returns its index
+    public long next(SensorCluster frame) throws IOException {
+        load(next, frame);
+        return next++;
+    }
+
+    // Load record's angles and lit mask into frame. The range and AoI of the
+    // lit sensors are zeroed, they are not recorded.
+    public void load(long record, SensorCluster frame) throws IOException {
+        if (frame.size != sensorCount) {
+            throw new IllegalArgumentException("Frame has " + frame.size + " sensors, the capture has " + sensorCount);
+        }
+        final int at = map(record);
+        for (int word = 0; word < frame.visible.length; word++) {
+            frame.visible[word] = window.getLong(at + CaptureFormat.MASK + 8 * word);
+        }
+        for (int s = 0; s < sensorCount; s++) {
+            frame.az[s] = window.getDouble(at + azOffset + 8 * s);
+            frame.el[s] = window.getDouble(at + elOffset + 8 * s);
+            frame.range[s] = 0d;
+            frame.cosAoI[s] = 0d;
+        }
+        frame.litCount = window.getInt(at + CaptureFormat.LIT_COUNT);
+    }
+
+    public double getTime(long record) throws IOException {
+        return window.getDouble(map(record) + CaptureFormat.TIME);
+    }
+
+    public int getDevice(long record) throws IOException {
+        return window.getInt(map(record) + CaptureFormat.DEVICE);
+    }
+
+    // The pose recorded with record
+    public PoseEstimate getPose(long record, PoseEstimate out) throws IOException {
+        final int at = map(record) + poseOffset;
+        out.position.set(window.getDouble(at), window.getDouble(at + 8), window.getDouble(at + 16));
+        out.orientation.setTo(window.getDouble(at + 24), window.getDouble(at + 32), window.getDouble(at + 40), window.getDouble(at + 48));
+        out.residualRms = window.getDouble(at + 56);
+        out.litSensorCount = window.getInt(at + 64);
+        out.icoSpherePointCount = window.getInt(at + 68);
+        out.valid = window.getInt(at + 72) != 0;
+        return out;
+    }
+
+    // True when two poses are identical to the bit, as a deterministic
+    // replay of a recorded frame must be
+    public static boolean samePose(PoseEstimate a, PoseEstimate b) {
+        return (a.valid == b.valid) && (a.litSensorCount == b.litSensorCount) && (a.icoSpherePointCount == b.icoSpherePointCount)
+                && sameBits(a.position.x, b.position.x) && sameBits(a.position.y, b.position.y) && sameBits(a.position.z, b.position.z)
+                && sameBits(a.orientation.x, b.orientation.x) && sameBits(a.orientation.y, b.orientation.y)
+                && sameBits(a.orientation.z, b.orientation.z) && sameBits(a.orientation.w, b.orientation.w)
+                && sameBits(a.residualRms, b.residualRms);
+    }
+
+    private static boolean sameBits(double a, double b) {
+        return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+    }
+
+    public void close() throws IOException {
+        window = null;
+        file.close();
+    }
+
+    // Bring record into the window, returns its offset in the window
+    private int map(long record) throws IOException {
+        if ((record < 0) || (record >= recordCount)) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + recordCount);
+        }
+        if ((window == null) || (record < windowFirst) || (record >= windowFirst + windowCount)) {
+            windowFirst = record - (record % windowRecords);
+            windowCount = Math.min(windowRecords, recordCount - windowFirst);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + windowFirst * recordSize, windowCount * recordSize);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return (int) ((record - windowFirst) * recordSize);
+    }
+}
@@ -0,0 +1,115 @@
+package chartadvancedscatter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// Records frames to a capture file in CaptureFormat. Records are packed into
+// one direct buffer and written a batch at a time, so recording a frame
+// allocates nothing. Not thread safe, give each recording thread its own
+// writer and file.
+public class CaptureWriter implements Closeable {
+    private static final int BATCH_BYTES = 1 << 16;
+
+    public final int sensorCount;
+    private final int recordSize;
+    private final int azOffset;
+    private final int elOffset;
+    private final int poseOffset;
+    private final FileOutputStream stream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long recordCount;
+
+    // Create or truncate file and write the header and geometry
+    public CaptureWriter(File file, SensorCluster geometry) throws IOException {
+        sensorCount = geometry.size;
+        recordSize = CaptureFormat.recordSize(sensorCount);
+        azOffset = CaptureFormat.azOffset(sensorCount);
+        elOffset = CaptureFormat.elOffset(sensorCount);
+        poseOffset = CaptureFormat.poseOffset(sensorCount);
+        final int dataOffset = CaptureFormat.dataOffset(sensorCount);
+        buffer = ByteBuffer.allocateDirect(Math.max(dataOffset, Math.max(recordSize, BATCH_BYTES / recordSize * recordSize)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        stream = new FileOutputStream(file);
+        channel = stream.getChannel();
+
+        buffer.putInt(CaptureFormat.MAGIC).putInt(CaptureFormat.VERSION).putInt(sensorCount)
+                .putInt(CaptureFormat.maskWords(sensorCount)).putInt(recordSize).putInt(dataOffset);
+        while (buffer.position() < CaptureFormat.HEADER_SIZE) {
+            buffer.put((byte) 0);
+        }
+        for (int s = 0; s < sensorCount; s++) {
+            buffer.putDouble(geometry.posX[s]).putDouble(geometry.posY[s]).putDouble(geometry.posZ[s]);
+            buffer.putDouble(geometry.normX[s]).putDouble(geometry.normY[s]).putDouble(geometry.normZ[s]);
+        }
+        writeBuffer();
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // Record one frame: the lit sensors' angles of frame and the pose solved
+    // from them. frame must have the geometry's sensor count.
+    public void write(double time, int device, SensorCluster frame, PoseEstimate pose) throws IOException {
+        if (frame.size != sensorCount) {
+            throw new IllegalArgumentException("Frame has " + frame.size + " sensors, the capture has " + sensorCount);
+        }
+        if (buffer.remaining() < recordSize) {
+            writeBuffer();
+        }
+        final int record = buffer.position();
+        buffer.putDouble(record + CaptureFormat.TIME, time);
+        buffer.putInt(record + CaptureFormat.DEVICE, device);
+        buffer.putInt(record + CaptureFormat.LIT_COUNT, frame.litCount);
+        for (int word = 0; word < frame.visible.length; word++) {
+            buffer.putLong(record + CaptureFormat.MASK + 8 * word, frame.visible[word]);
+        }
+        for (int s = 0; s < sensorCount; s++) {
+            final boolean lit = frame.isVisible(s);
+            buffer.putDouble(record + azOffset + 8 * s, lit ? frame.az[s] : 0d);
+            buffer.putDouble(record + elOffset + 8 * s, lit ? frame.el[s] : 0d);
+        }
+        int at = record + poseOffset;
+        buffer.putDouble(at, pose.position.x);
+        buffer.putDouble(at + 8, pose.position.y);
+        buffer.putDouble(at + 16, pose.position.z);
+        buffer.putDouble(at + 24, pose.orientation.x);
+        buffer.putDouble(at + 32, pose.orientation.y);
+        buffer.putDouble(at + 40, pose.orientation.z);
+        buffer.putDouble(at + 48, pose.orientation.w);
+        buffer.putDouble(at + 56, pose.residualRms);
+        buffer.putInt(at + 64, pose.litSensorCount);
+        buffer.putInt(at + 68, pose.icoSpherePointCount);
+        buffer.putInt(at + 72, pose.valid ? 1 : 0);
+        buffer.putInt(at + 76, 0);
+        buffer.position(record + recordSize);
+        recordCount++;
+    }
+
+    // Write out any batched records
+    public void flush() throws IOException {
+        writeBuffer();
+    }
+
+    public void close() throws IOException {
+        try {
+            writeBuffer();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,359 @@
+package chartadvancedscatter;
+
+// Closed form initial pose from the lit sensors' sweep angles, treating the
+// base as a camera that measures a bearing to each sensor. Every sensor
+// gives u x (R p + T) = 0 for its unit bearing u and cluster position p,
+// which is linear in the twelve entries of [R | T]. The direct linear
+// transform stacks those constraints, takes the least squares null vector
+// from the smallest eigenvector of the 12x12 normal matrix (by inverse
+// iteration), then fixes the scale from the determinant and pulls R onto
+// the nearest rotation by polar iteration.
+//
+// It needs six lit sensors not all on one plane. Unlike the IcoSphere
+// heuristic it makes no assumption about the cluster orientation, so it
+// seeds the refinement well for any pose, but with noisy angles it is only
+// a seed. The sensor positions are centred and scaled first to keep the
+// normal matrix well conditioned. Everything is preallocated, an estimate
+// allocates nothing.
+public class ClosedFormPose {
+    public static final int MIN_SENSORS = 6;
+    private static final int N = 12;
+    private static final int MAX_ITERATIONS = 50;
+    private static final int SECOND_ITERATIONS = 8;
+    private static final int POLAR_ITERATIONS = 20;
+
+    private final double[] normal = new double[N * N]; // Upper triangle used
+    private final double[] factor = new double[N * N]; // Upper Cholesky factor
+    private final double[] reciprocal = new double[N]; // Of the factor's diagonal
+    private final double[] vector = new double[N];
+    private final double[] other = new double[N];
+    private final double[] work = new double[N];
+    private final double[] sensor = new double[8]; // Bearing then centred position of one sensor
+    private final double[] rotation = new double[9];
+    private final double[] inverse = new double[9];
+
+    // Bearings from FastTrig rather than Math
+    public boolean fastTrig = false;
+
+    // Outcome of the last estimate
+    public int sensorsUsed;
+    public int iterations; // Of inverse iteration for the null vector
+    public double conditioning; // Smallest over second smallest eigenvalue, near zero for a clear solution
+    private double second;
+
+    // Estimate the position of the base wrt the cluster and the cluster
+    // orientation, as PoseRefiner models them. Returns false with position
+    // and orientation untouched when the lit sensors cannot fix a pose.
+    public boolean estimate(SensorCluster c, Vector3 position, Quaternion orientation) {
+        return estimate(c, c.visible, position, orientation);
+    }
+
+    // As estimate from only the sensors set in mask, a subset of the lit ones
+    public boolean estimate(SensorCluster c, long[] mask, Vector3 position, Quaternion orientation) {
+        int count = 0;
+        for (int word = 0; word < mask.length; word++) {
+            count += Long.bitCount(mask[word]);
+        }
+        sensorsUsed = count;
+        iterations = 0;
+        conditioning = Double.NaN;
+        if (count < MIN_SENSORS) {
+            return false;
+        }
+
+        // Centre and scale of the lit sensors
+        double cx = 0d, cy = 0d, cz = 0d;
+        for (int word = 0; word < mask.length; word++) {
+            long lit = mask[word];
+            while (lit != 0L) {
+                final int s = (word << 6) + Long.numberOfTrailingZeros(lit);
+                lit &= lit - 1L;
+                cx += c.posX[s];
+                cy += c.posY[s];
+                cz += c.posZ[s];
+            }
+        }
+        cx /= count;
+        cy /= count;
+        cz /= count;
+        double spread = 0d;
+        for (int word = 0; word < mask.length; word++) {
+            long lit = mask[word];
+            while (lit != 0L) {
+                final int s = (word << 6) + Long.numberOfTrailingZeros(lit);
+                lit &= lit - 1L;
+                final double dx = c.posX[s] - cx, dy = c.posY[s] - cy, dz = c.posZ[s] - cz;
+                spread += (dx*dx) + (dy*dy) + (dz*dz);
+            }
+        }
+        spread = Math.sqrt(spread / count);
+        if (!(spread > 0d)) {
+            return false;
+        }
+        final double scale = 1d / spread;
+
+        // Normal matrix of the cross product constraints. Summed over the
+        // three rows of a sensor they give block (i, j) of the matrix as
+        // (delta ij - ui uj) times the outer product of (p, 1).
+        for (int i = 0; i < N * N; i++) {
+            normal[i] = 0d;
+        }
+        final double[] q = sensor;
+        for (int word = 0; word < mask.length; word++) {
+            long lit = mask[word];
+            while (lit != 0L) {
+                final int s = (word << 6) + Long.numberOfTrailingZeros(lit);
+                lit &= lit - 1L;
+                if (fastTrig) {
+                    final double cosAz = FastTrig.cos(c.az[s]);
+                    q[0] = cosAz * FastTrig.cos(c.el[s]);
+                    q[1] = FastTrig.sin(c.az[s]);
+                    q[2] = cosAz * FastTrig.sin(c.el[s]);
+                } else {
+                    final double cosAz = Math.cos(c.az[s]);
+                    q[0] = cosAz * Math.cos(c.el[s]);
+                    q[1] = Math.sin(c.az[s]);
+                    q[2] = cosAz * Math.sin(c.el[s]);
+                }
+                q[4] = (c.posX[s] - cx) * scale;
+                q[5] = (c.posY[s] - cy) * scale;
+                q[6] = (c.posZ[s] - cz) * scale;
+                q[7] = 1d;
+                addSensor(q);
+            }
+        }
+
+        // Null vector, the eigenvector of the smallest eigenvalue
+        final double smallest = smallestEigen();
+        conditioning = Math.abs(smallest) / Math.abs(second);
+        if (!(conditioning < 0.1d)) {
+            // No clear null space, the lit sensors are too close to a plane
+            // or the angles too noisy
+            return false;
+        }
+
+        // [A | t] = k [R / scale | T + R c], fix k from det(A) so that R is
+        // a proper rotation
+        final double[] m = rotation;
+        for (int r = 0; r < 3; r++) {
+            for (int col = 0; col < 3; col++) {
+                m[r * 3 + col] = vector[r * 4 + col];
+            }
+        }
+        final double det = determinant(m);
+        if (det == 0d) {
+            return false;
+        }
+        final double root = Math.cbrt(det);
+        final double k = root * scale;
+        for (int i = 0; i < 9; i++) {
+            m[i] /= root;
+        }
+        if (!orthonormalise(m)) {
+            return false;
+        }
+        final double tx = vector[3] / k;
+        final double ty = vector[7] / k;
+        final double tz = vector[11] / k;
+
+        // T = t - R c, and the cluster has to be in front of the base
+        final double x = tx - (m[0]*cx + m[1]*cy + m[2]*cz);
+        final double y = ty - (m[3]*cx + m[4]*cy + m[5]*cz);
+        final double z = tz - (m[6]*cx + m[7]*cy + m[8]*cz);
+        if (!(x > 0d)) {
+            return false;
+        }
+        position.set(x, y, z);
+        orientation.setFromRotationMatrix(m).norm();
+        return true;
+    }
+
+    // Add one sensor's constraints, unit bearing in q[0..2] and (p, 1) in
+    // q[4..7], to the upper triangle
+    private void addSensor(double[] q) {
+        final double[] a = normal;
+        for (int bi = 0; bi < 3; bi++) {
+            for (int bj = bi; bj < 3; bj++) {
+                final double weight = ((bi == bj) ? 1d : 0d) - q[bi] * q[bj];
+                for (int ri = 0; ri < 4; ri++) {
+                    final double wp = weight * q[4 + ri];
+                    final int base = (bi * 4 + ri) * N + bj * 4;
+                    for (int rj = (bi == bj) ? ri : 0; rj < 4; rj++) {
+                        a[base + rj] += wp * q[4 + rj];
+                    }
+                }
+            }
+        }
+    }
+
+    // Smallest eigenvector of the symmetric normal matrix by inverse
+    // iteration, solving with a Cholesky factor of the matrix shifted by a
+    // tiny multiple of its trace so that an exact null space still
+    // factorises. Leaves the eigenvector in vector and returns its
+    // eigenvalue. The second smallest eigenvalue is estimated the same way
+    // with the first eigenvector projected out, into second.
+    private double smallestEigen() {
+        final double[] a = normal;
+        double trace = 0d;
+        for (int i = 0; i < N; i++) {
+            trace += a[i * N + i];
+        }
+        if (!(trace > 0d) || !factorise(trace * 1e-12d)) {
+            return Double.NaN;
+        }
+        final double[] x = vector;
+        for (int i = 0; i < N; i++) {
+            x[i] = 1d;
+        }
+        iterations = 0;
+        double change = 1d;
+        while ((change > 1e-13d) && (iterations < MAX_ITERATIONS)) {
+            iterations++;
+            change = inverseStep(x, null);
+        }
+        final double smallest = rayleigh(x);
+
+        final double[] y = other;
+        for (int i = 0; i < N; i++) {
+            y[i] = (i & 1) == 0 ? 1d : -1d;
+        }
+        for (int iteration = 0; iteration < SECOND_ITERATIONS; iteration++) {
+            inverseStep(y, x);
+        }
+        second = rayleigh(y);
+        return smallest;
+    }
+
+    // Upper Cholesky factor of normal + shift I into factor, false when it
+    // is not positive definite
+    private boolean factorise(double shift) {
+        final double[] a = normal;
+        final double[] u = factor;
+        for (int i = 0; i < N; i++) {
+            for (int j = i; j < N; j++) {
+                double sum = a[i * N + j] + ((i == j) ? shift : 0d);
+                for (int k = 0; k < i; k++) {
+                    sum -= u[k * N + i] * u[k * N + j];
+                }
+                if (i == j) {
+                    if (!(sum > 0d)) {
+                        return false;
+                    }
+                    u[i * N + i] = Math.sqrt(sum);
+                    reciprocal[i] = 1d / u[i * N + i];
+                } else {
+                    u[i * N + j] = sum * reciprocal[i];
+                }
+            }
+        }
+        return true;
+    }
+
+    // x = normalised (U^T U)^-1 x with any component along unit vector
+    // deflate removed, returns how far x moved
+    private double inverseStep(double[] x, double[] deflate) {
+        final double[] u = factor;
+        final double[] r = reciprocal;
+        final double[] z = work;
+        if (deflate != null) {
+            project(x, deflate);
+        }
+        // U^T z = x then U z = z
+        for (int i = 0; i < N; i++) {
+            double sum = x[i];
+            for (int k = 0; k < i; k++) {
+                sum -= u[k * N + i] * z[k];
+            }
+            z[i] = sum * r[i];
+        }
+        for (int i = N - 1; i >= 0; i--) {
+            double sum = z[i];
+            for (int k = i + 1; k < N; k++) {
+                sum -= u[i * N + k] * z[k];
+            }
+            z[i] = sum * r[i];
+        }
+        if (deflate != null) {
+            project(z, deflate);
+        }
+        double length = 0d;
+        for (int i = 0; i < N; i++) {
+            length += z[i] * z[i];
+        }
+        length = Math.sqrt(length);
+        // Keep the sign steady so the change measures convergence
+        double dot = 0d;
+        for (int i = 0; i < N; i++) {
+            dot += z[i] * x[i];
+        }
+        if (dot < 0d) {
+            length = -length;
+        }
+        double change = 0d;
+        for (int i = 0; i < N; i++) {
+            final double next = z[i] / length;
+            change += Math.abs(next - x[i]);
+            x[i] = next;
+        }
+        return change;
+    }
+
+    private static void project(double[] x, double[] unit) {
+        double dot = 0d;
+        for (int i = 0; i < N; i++) {
+            dot += x[i] * unit[i];
+        }
+        for (int i = 0; i < N; i++) {
+            x[i] -= dot * unit[i];
+        }
+    }
+
+    // x^T normal x for a unit x, from the upper triangle
+    private double rayleigh(double[] x) {
+        final double[] a = normal;
+        double sum = 0d;
+        for (int i = 0; i < N; i++) {
+            sum += a[i * N + i] * x[i] * x[i];
+            for (int j = i + 1; j < N; j++) {
+                sum += 2d * a[i * N + j] * x[i] * x[j];
+            }
+        }
+        return sum;
+    }
+
+    private static double determinant(double[] m) {
+        return m[0] * (m[4]*m[8] - m[5]*m[7]) - m[1] * (m[3]*m[8] - m[5]*m[6]) + m[2] * (m[3]*m[7] - m[4]*m[6]);
+    }
+
+    // Nearest rotation to m by the polar iteration m = (m + m^-T) / 2,
+    // false when m is singular
+    private boolean orthonormalise(double[] m) {
+        final double[] inv = inverse;
+        for (int iteration = 0; iteration < POLAR_ITERATIONS; iteration++) {
+            final double det = determinant(m);
+            if (!(Math.abs(det) > 1e-12d)) {
+                return false;
+            }
+            // Inverse transpose is the cofactor matrix over the determinant
+            inv[0] = (m[4]*m[8] - m[5]*m[7]) / det;
+            inv[1] = (m[5]*m[6] - m[3]*m[8]) / det;
+            inv[2] = (m[3]*m[7] - m[4]*m[6]) / det;
+            inv[3] = (m[2]*m[7] - m[1]*m[8]) / det;
+            inv[4] = (m[0]*m[8] - m[2]*m[6]) / det;
+            inv[5] = (m[1]*m[6] - m[0]*m[7]) / det;
+            inv[6] = (m[1]*m[5] - m[2]*m[4]) / det;
+            inv[7] = (m[2]*m[3] - m[0]*m[5]) / det;
+            inv[8] = (m[0]*m[4] - m[1]*m[3]) / det;
+            double change = 0d;
+            for (int i = 0; i < 9; i++) {
+                final double next = 0.5d * (m[i] + inv[i]);
+                change += Math.abs(next - m[i]);
+                m[i] = next;
+            }
+            if (change < 1e-14d) {
+                break;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package chartadvancedscatter;
+
+// A cone of directions around an axis, tested in the cosine domain so that a
+// visibility or FoR decision costs a dot product and a compare instead of
+// sqrt, a divide and an acos. The cosine is worked out once when the cone is
+// built.
+public final class Cone {
+    public final double halfAngle; // Radians
+    public final double cosHalfAngle;
+    private final double cosHalfAngleSq;
+
+    private Cone (double halfAngle) {
+        this.halfAngle = halfAngle;
+        this.cosHalfAngle = Math.cos(halfAngle);
+        this.cosHalfAngleSq = cosHalfAngle * cosHalfAngle;
+    }
+
+    public static Cone fromDegrees (double halfAngle) {
+        return new Cone(Math.toRadians(halfAngle));
+    }
+
+    public static Cone fromRads (double halfAngle) {
+        return new Cone(halfAngle);
+    }
+
+    public String toString () {
+        return "(" + Math.toDegrees(halfAngle) + "deg)";
+    }
+
+    // Both vectors unit length
+    public boolean containsUnit (double axisX, double axisY, double axisZ, double vX, double vY, double vZ) {
+        return ((axisX * vX) + (axisY * vY) + (axisZ * vZ)) > cosHalfAngle;
+    }
+
+    // Unit axis, v of any length
+    public boolean contains (double axisX, double axisY, double axisZ, double vX, double vY, double vZ) {
+        final double dot = (axisX * vX) + (axisY * vY) + (axisZ * vZ);
+        return within(dot, (vX * vX) + (vY * vY) + (vZ * vZ));
+    }
+
+    public boolean contains (final Vector3 unitAxis, final Vector3 v) {
+        return contains(unitAxis.x, unitAxis.y, unitAxis.z, v.x, v.y, v.z);
+    }
+
+    // angle < halfAngle given the dot product of a unit axis with a vector
+    // of squared length lengthSq. Squaring both sides keeps the sqrt out,
+    // the sign of the dot product decides which side of 90 degrees we are.
+    public boolean within (double dot, double lengthSq) {
+        return within(dot, lengthSq, cosHalfAngle, cosHalfAngleSq);
+    }
+
+    // As within() for vectors of any length, lengthSq being the product of
+    // the squared lengths of both vectors
+    public static boolean within (double dot, double lengthSq, double cosHalfAngle, double cosHalfAngleSq) {
+        if (cosHalfAngle >= 0d) {
+            return (dot > 0d) && ((dot * dot) > (cosHalfAngleSq * lengthSq));
+        }
+        return (dot >= 0d) || ((dot * dot) < (cosHalfAngleSq * lengthSq));
+    }
+}
@@ -0,0 +1,79 @@
+package chartadvancedscatter;
+
+// Kalman filter for three independent axes that each move at a constant
+// rate, driven by white noise on the rate of change of that rate. The axes
+// share their noise settings and so also share one 2x2 covariance, which
+// keeps a predict and update to a handful of multiplies per axis.
+public class ConstantVelocityFilter {
+    public final double[] value = new double[3];
+    public final double[] rate = new double[3];
+
+    // Covariance of (value, rate), the same on every axis
+    private double p00;
+    private double p01;
+    private double p11;
+
+    public double processNoise; // Spectral density of the rate's rate of change
+    public double measurementNoise; // Variance of a measured value
+
+    public ConstantVelocityFilter(double processNoise, double measurementNoise) {
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+    }
+
+    // Start again at a measured value with an unknown rate
+    public ConstantVelocityFilter reset(double x, double y, double z, double rateVariance) {
+        value[0] = x;
+        value[1] = y;
+        value[2] = z;
+        rate[0] = 0d;
+        rate[1] = 0d;
+        rate[2] = 0d;
+        p00 = measurementNoise;
+        p01 = 0d;
+        p11 = rateVariance;
+        return this;
+    }
+
+    // The value dt seconds on, the filter itself is left as it is
+    public double predicted(int axis, double dt) {
+        return value[axis] + rate[axis] * dt;
+    }
+
+    // Predict dt seconds on and then take in a measured value
+    public ConstantVelocityFilter update(double dt, double x, double y, double z) {
+        // P = F P F' + Q for F = [1 dt; 0 1]
+        final double q = processNoise;
+        final double dt2 = dt * dt;
+        final double n00 = p00 + 2d * dt * p01 + dt2 * p11 + q * dt2 * dt / 3d;
+        final double n01 = p01 + dt * p11 + q * dt2 / 2d;
+        final double n11 = p11 + q * dt;
+
+        final double s = n00 + measurementNoise;
+        final double gainValue = n00 / s;
+        final double gainRate = n01 / s;
+        updateAxis(0, dt, x, gainValue, gainRate);
+        updateAxis(1, dt, y, gainValue, gainRate);
+        updateAxis(2, dt, z, gainValue, gainRate);
+
+        p00 = (1d - gainValue) * n00;
+        p01 = (1d - gainValue) * n01;
+        p11 = n11 - gainRate * n01;
+        return this;
+    }
+
+    private void updateAxis(int axis, double dt, double measured, double gainValue, double gainRate) {
+        final double predicted = value[axis] + rate[axis] * dt;
+        final double innovation = measured - predicted;
+        value[axis] = predicted + gainValue * innovation;
+        rate[axis] += gainRate * innovation;
+    }
+
+    public double getValueVariance() {
+        return p00;
+    }
+
+    public double getRateVariance() {
+        return p11;
+    }
+}
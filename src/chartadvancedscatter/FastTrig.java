@@ -0,0 +1,103 @@
+package chartadvancedscatter;
+
+// Table and polynomial stand ins for the java.lang.Math trig functions on
+// the poser's per sensor paths. One tick of a 48MHz sweep clock on a 60Hz
+// rotor is 2 pi / 800000, about 7.9e-6 radians, and every function here is
+// an order of magnitude or more inside that, so it moves no angle by more
+// than the timing of the sweep that measured it already can. The bounds
+// are absolute, in radians for the inverse functions:
+//   sin, cos      4096 entry table per turn, linear interpolation, 3e-7
+//   asin, acos    Abramowitz and Stegun 4.4.46, 2e-8 (plus rounding)
+//   atan, atan2   Abramowitz and Stegun 4.4.49 after reduction to |x| <= 1,
+//                 2e-8 (plus rounding)
+// sin and cos lose the bound far from zero, past |x| of about 1e6, where
+// the argument reduction runs out of fraction bits. Like Math, asin and
+// acos return NaN outside [-1, 1].
+public final class FastTrig {
+    public static final double SIN_MAX_ERROR = 3e-7d;
+    public static final double ASIN_MAX_ERROR = 5e-8d;
+    public static final double ATAN_MAX_ERROR = 5e-8d;
+
+    private static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final int QUARTER_TURN = TABLE_SIZE / 4;
+    private static final double STEPS_PER_RADIAN = TABLE_SIZE / (2d * Math.PI);
+    private static final double HALF_PI = Math.PI / 2d;
+
+    // sin at each step round the circle, plus one so interpolation never wraps
+    private static final double[] SIN = new double[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SIN[i] = Math.sin(i / STEPS_PER_RADIAN);
+        }
+    }
+
+    private FastTrig () {
+    }
+
+    public static double sin (double radians) {
+        return lookup(radians * STEPS_PER_RADIAN, 0);
+    }
+
+    public static double cos (double radians) {
+        return lookup(radians * STEPS_PER_RADIAN, QUARTER_TURN);
+    }
+
+    // Interpolated table entry at steps round the circle plus offset steps
+    private static double lookup (double steps, int offset) {
+        final double floor = Math.floor(steps);
+        final int index = ((int) (long) floor + offset) & TABLE_MASK;
+        final double fraction = steps - floor;
+        return SIN[index] + fraction * (SIN[index + 1] - SIN[index]);
+    }
+
+    public static double acos (double x) {
+        if (x >= 0d) {
+            return (x <= 1d) ? acosPositive(x) : Double.NaN;
+        }
+        return (x >= -1d) ? Math.PI - acosPositive(-x) : Double.NaN;
+    }
+
+    public static double asin (double x) {
+        if (x >= 0d) {
+            return (x <= 1d) ? HALF_PI - acosPositive(x) : Double.NaN;
+        }
+        return (x >= -1d) ? acosPositive(-x) - HALF_PI : Double.NaN;
+    }
+
+    // A&S 4.4.46, 0 <= x <= 1
+    private static double acosPositive (double x) {
+        return Math.sqrt(1d - x) * (1.5707963050d + x * (-0.2145988016d + x * (0.0889789874d + x * (-0.0501743046d
+                + x * (0.0308918810d + x * (-0.0170881256d + x * (0.0066700901d + x * -0.0012624911d)))))));
+    }
+
+    public static double atan (double x) {
+        if (x > 1d) {
+            return HALF_PI - atanUnit(1d / x);
+        }
+        if (x < -1d) {
+            return -HALF_PI - atanUnit(1d / x);
+        }
+        return atanUnit(x);
+    }
+
+    public static double atan2 (double y, double x) {
+        if (x > 0d) {
+            return atan(y / x);
+        }
+        if (x < 0d) {
+            return atan(y / x) + Math.copySign(Math.PI, y);
+        }
+        // On the y axis, or NaN
+        return Math.atan2(y, x);
+    }
+
+    // A&S 4.4.49, -1 <= x <= 1
+    private static double atanUnit (double x) {
+        final double x2 = x * x;
+        return x * (1d + x2 * (-0.3333314528d + x2 * (0.1999355085d + x2 * (-0.1420889944d + x2 * (0.1065626393d
+                + x2 * (-0.0752896400d + x2 * (0.0429096138d + x2 * (-0.0161657367d + x2 * 0.0028662257d))))))));
+    }
+}
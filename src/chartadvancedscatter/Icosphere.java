@@ -0,0 +1,281 @@
+package chartadvancedscatter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// A subdivided icosahedron used to sample bearings. The points are the unit
+// directions through the face centres, so level n has 20 * 4^n points (level
+// 2 gives the 320 points the poser has always used). Each subdivision splits
+// a face into four, the children of face f on level n are faces 4f to 4f+3
+// on level n+1, which lets a search walk down from a coarse level.
+//
+// Levels are generated on first use and memoized. When the
+// chartadvancedscatter.icosphereCache system property names a directory the
+// generated tables are also written there and read back on later runs.
+public final class Icosphere {
+    public static final int MAX_LEVEL = 8;
+    private static final int FILE_MAGIC = 0x49434f53; // "ICOS"
+    private static final int FILE_VERSION = 1;
+    private static final Icosphere[] LEVELS = new Icosphere[MAX_LEVEL + 1];
+
+    public final int level;
+    public final int size;
+    public final double[] x; // Unit directions through the face centres
+    public final double[] y;
+    public final double[] z;
+    public final double[] angularRadius; // Radians from the centre to the furthest corner
+    public final int[] neighbors; // Three edge neighbours per face, face f at 3f to 3f+2
+
+    private Icosphere (int level, int size) {
+        this.level = level;
+        this.size = size;
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+        angularRadius = new double[size];
+        neighbors = new int[size * 3];
+    }
+
+    public String toString () {
+        return "Icosphere(level " + level + ", " + size + " points)";
+    }
+
+    public static int pointsAtLevel (int level) {
+        return 20 << (2 * level);
+    }
+
+    public Vector3 getPoint (int point, Vector3 out) {
+        return out.set(x[point], y[point], z[point]);
+    }
+
+    // The memoized level, generated (or loaded from the cache directory) on
+    // first use
+    public static Icosphere level (int level) {
+        if ((level < 0) || (level > MAX_LEVEL)) {
+            throw new IllegalArgumentException("Icosphere level " + level + " is outside 0.." + MAX_LEVEL);
+        }
+        synchronized (LEVELS) {
+            if (LEVELS[level] == null) {
+                String cacheDir = System.getProperty("chartadvancedscatter.icosphereCache");
+                LEVELS[level] = (cacheDir == null) ? generate(level) : loadOrGenerate(level, new File(cacheDir));
+            }
+            return LEVELS[level];
+        }
+    }
+
+    // The coarsest level whose points are no further apart than resolution
+    // radians, capped at MAX_LEVEL
+    public static int levelForResolution (double resolution) {
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            if (level(level).maxAngularRadius() <= resolution) {
+                return level;
+            }
+        }
+        return MAX_LEVEL;
+    }
+
+    public double maxAngularRadius () {
+        double max = 0d;
+        for (int face = 0; face < size; face++) {
+            max = Math.max(max, angularRadius[face]);
+        }
+        return max;
+    }
+
+
+    // =================================================================
+    //                          Generation
+    // =================================================================
+    public static Icosphere generate (int level) {
+        // Icosahedron with a vertex on each pole and two rings of five
+        final double ringZ = 1d / Math.sqrt(5d);
+        final double ringR = 2d / Math.sqrt(5d);
+        ArrayList<double[]> vertices = new ArrayList<double[]>();
+        vertices.add(new double[] {0d, 0d, 1d});
+        for (int k = 0; k < 5; k++) {
+            double angle = Math.toRadians(72d * k);
+            vertices.add(new double[] {ringR * Math.cos(angle), ringR * Math.sin(angle), ringZ});
+        }
+        for (int k = 0; k < 5; k++) {
+            double angle = Math.toRadians(72d * k + 36d);
+            vertices.add(new double[] {ringR * Math.cos(angle), ringR * Math.sin(angle), -ringZ});
+        }
+        vertices.add(new double[] {0d, 0d, -1d});
+
+        int[] faces = new int[20 * 3];
+        for (int k = 0; k < 5; k++) {
+            int a = 1 + k, b = 1 + (k + 1) % 5, c = 6 + k, d = 6 + (k + 1) % 5;
+            setFace(faces, 4 * k, 0, a, b);
+            setFace(faces, 4 * k + 1, a, c, b);
+            setFace(faces, 4 * k + 2, b, c, d);
+            setFace(faces, 4 * k + 3, 11, d, c);
+        }
+
+        for (int l = 0; l < level; l++) {
+            HashMap<Long, Integer> midpoints = new HashMap<Long, Integer>();
+            int faceCount = faces.length / 3;
+            int[] subdivided = new int[faces.length * 4];
+            for (int face = 0; face < faceCount; face++) {
+                int a = faces[face * 3], b = faces[face * 3 + 1], c = faces[face * 3 + 2];
+                int ab = midpoint(vertices, midpoints, a, b);
+                int bc = midpoint(vertices, midpoints, b, c);
+                int ca = midpoint(vertices, midpoints, c, a);
+                setFace(subdivided, 4 * face, a, ab, ca);
+                setFace(subdivided, 4 * face + 1, ab, b, bc);
+                setFace(subdivided, 4 * face + 2, ca, bc, c);
+                setFace(subdivided, 4 * face + 3, ab, bc, ca);
+            }
+            faces = subdivided;
+        }
+
+        Icosphere sphere = new Icosphere(level, faces.length / 3);
+        Vector3 centre = new Vector3();
+        for (int face = 0; face < sphere.size; face++) {
+            centre.setZero();
+            for (int corner = 0; corner < 3; corner++) {
+                double[] v = vertices.get(faces[face * 3 + corner]);
+                centre.add(v[0], v[1], v[2]);
+            }
+            centre.norm();
+            sphere.x[face] = centre.x;
+            sphere.y[face] = centre.y;
+            sphere.z[face] = centre.z;
+            double minCos = 1d;
+            for (int corner = 0; corner < 3; corner++) {
+                double[] v = vertices.get(faces[face * 3 + corner]);
+                minCos = Math.min(minCos, centre.dot(v[0], v[1], v[2]));
+            }
+            sphere.angularRadius[face] = Math.acos(Quaternion.clamp(minCos, -1d, 1d));
+        }
+        buildNeighbors(faces, sphere.neighbors);
+        return sphere;
+    }
+
+    private static void setFace (int[] faces, int face, int a, int b, int c) {
+        faces[face * 3] = a;
+        faces[face * 3 + 1] = b;
+        faces[face * 3 + 2] = c;
+    }
+
+    private static long edgeKey (int a, int b) {
+        return (a < b) ? (((long) a << 32) | b) : (((long) b << 32) | a);
+    }
+
+    private static int midpoint (ArrayList<double[]> vertices, HashMap<Long, Integer> midpoints, int a, int b) {
+        Long key = Long.valueOf(edgeKey(a, b));
+        Integer existing = midpoints.get(key);
+        if (existing != null) {
+            return existing.intValue();
+        }
+        double[] va = vertices.get(a);
+        double[] vb = vertices.get(b);
+        Vector3 mid = new Vector3(va[0] + vb[0], va[1] + vb[1], va[2] + vb[2]).norm();
+        vertices.add(new double[] {mid.x, mid.y, mid.z});
+        int index = vertices.size() - 1;
+        midpoints.put(key, Integer.valueOf(index));
+        return index;
+    }
+
+    private static void buildNeighbors (int[] faces, int[] neighbors) {
+        int faceCount = faces.length / 3;
+        HashMap<Long, Integer> firstFaceOnEdge = new HashMap<Long, Integer>();
+        int[] filled = new int[faceCount];
+        for (int face = 0; face < faceCount; face++) {
+            for (int edge = 0; edge < 3; edge++) {
+                Long key = Long.valueOf(edgeKey(faces[face * 3 + edge], faces[face * 3 + (edge + 1) % 3]));
+                Integer other = firstFaceOnEdge.remove(key);
+                if (other == null) {
+                    firstFaceOnEdge.put(key, Integer.valueOf(face));
+                } else {
+                    int otherFace = other.intValue();
+                    neighbors[face * 3 + filled[face]++] = otherFace;
+                    neighbors[otherFace * 3 + filled[otherFace]++] = face;
+                }
+            }
+        }
+    }
+
+
+    // =================================================================
+    //                          Persistence
+    // =================================================================
+    static Icosphere loadOrGenerate (int level, File cacheDir) {
+        File file = new File(cacheDir, "icosphere-" + level + ".bin");
+        if (file.isFile()) {
+            try {
+                Icosphere cached = read(file);
+                if (cached.level == level) {
+                    return cached;
+                }
+                // A table for another level copied or left under this name,
+                // regenerate over the top of it
+            } catch (IOException unreadable) {
+                // Fall through and regenerate over the top of it
+            }
+        }
+        Icosphere sphere = generate(level);
+        try {
+            cacheDir.mkdirs();
+            sphere.write(file);
+        } catch (IOException notWritable) {
+            // The cache is only an optimisation
+        }
+        return sphere;
+    }
+
+    public void write (File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(level);
+            out.writeInt(size);
+            for (int face = 0; face < size; face++) {
+                out.writeDouble(x[face]);
+                out.writeDouble(y[face]);
+                out.writeDouble(z[face]);
+                out.writeDouble(angularRadius[face]);
+            }
+            for (int i = 0; i < neighbors.length; i++) {
+                out.writeInt(neighbors[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static Icosphere read (File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if ((in.readInt() != FILE_MAGIC) || (in.readInt() != FILE_VERSION)) {
+                throw new IOException(file + " is not an icosphere table");
+            }
+            int level = in.readInt();
+            int size = in.readInt();
+            if ((level < 0) || (level > MAX_LEVEL) || (size != pointsAtLevel(level))) {
+                throw new IOException(file + " has a bad level or size");
+            }
+            Icosphere sphere = new Icosphere(level, size);
+            for (int face = 0; face < size; face++) {
+                sphere.x[face] = in.readDouble();
+                sphere.y[face] = in.readDouble();
+                sphere.z[face] = in.readDouble();
+                sphere.angularRadius[face] = in.readDouble();
+            }
+            for (int i = 0; i < sphere.neighbors.length; i++) {
+                sphere.neighbors[i] = in.readInt();
+            }
+            return sphere;
+        } finally {
+            in.close();
+        }
+    }
+}
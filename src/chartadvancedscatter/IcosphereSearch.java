@@ -0,0 +1,190 @@
+package chartadvancedscatter;
+
+// Coarse to fine bearing search over the Icosphere levels. Every face is
+// classed against the FoR cone of each lit sensor, widened and narrowed by
+// how far the face spreads as seen from the sensor:
+//   IN      - the whole face is inside every cone, all of its points at the
+//             final level count without visiting them
+//   OUT     - the whole face is outside some cone and is dropped
+//   PARTIAL - the face straddles a cone edge, its children are searched
+// At the final level each point is tested exactly, so the result matches a
+// flat search at that level while only the faces along the cone edges are
+// ever visited. A child lies inside its parent, so only the sensors whose
+// cone edge the parent straddled are tested again below it (for up to 64
+// lit sensors, beyond that every lit sensor is retested).
+public class IcosphereSearch {
+    private static final int IN = 0;
+    private static final int OUT = 1;
+    private static final int PARTIAL = 2;
+
+    public final int startLevel;
+    public final int endLevel;
+    private final Icosphere[] levels;
+    private final double radius;
+
+    // Sum of the final level points below each face, per level
+    private final double[][] subtreeSumX;
+    private final double[][] subtreeSumY;
+    private final double[][] subtreeSumZ;
+
+    // Scratch, reused every search
+    private final int[] stackLevel;
+    private final int[] stackFace;
+    private final long[] stackPending; // Lit sensors still undecided for the face
+    private int[] litSensors = new int[0];
+    public int facesVisited;
+
+    // Search from startLevel down to the coarsest level that meets the
+    // angular resolution (radians), with the IcoSphere scaled to radius
+    public IcosphereSearch(int startLevel, double resolution, double radius) {
+        this(startLevel, Math.max(startLevel, Icosphere.levelForResolution(resolution)), radius);
+    }
+
+    public IcosphereSearch(int startLevel, int endLevel, double radius) {
+        if ((startLevel < 0) || (endLevel < startLevel) || (endLevel > Icosphere.MAX_LEVEL)) {
+            throw new IllegalArgumentException("Bad search levels " + startLevel + ".." + endLevel);
+        }
+        this.startLevel = startLevel;
+        this.endLevel = endLevel;
+        this.radius = radius;
+        levels = new Icosphere[endLevel + 1];
+        subtreeSumX = new double[endLevel + 1][];
+        subtreeSumY = new double[endLevel + 1][];
+        subtreeSumZ = new double[endLevel + 1][];
+        for (int level = startLevel; level <= endLevel; level++) {
+            levels[level] = Icosphere.level(level);
+        }
+
+        Icosphere leaves = levels[endLevel];
+        subtreeSumX[endLevel] = leaves.x.clone();
+        subtreeSumY[endLevel] = leaves.y.clone();
+        subtreeSumZ[endLevel] = leaves.z.clone();
+        for (int level = endLevel - 1; level >= startLevel; level--) {
+            int size = levels[level].size;
+            subtreeSumX[level] = new double[size];
+            subtreeSumY[level] = new double[size];
+            subtreeSumZ[level] = new double[size];
+            for (int face = 0; face < size; face++) {
+                for (int child = 4 * face; child < 4 * face + 4; child++) {
+                    subtreeSumX[level][face] += subtreeSumX[level + 1][child];
+                    subtreeSumY[level][face] += subtreeSumY[level + 1][child];
+                    subtreeSumZ[level][face] += subtreeSumZ[level + 1][child];
+                }
+            }
+        }
+
+        // Depth first, so the stack holds the start faces plus three
+        // siblings for each level below
+        int stackSize = levels[startLevel].size + 3 * (endLevel - startLevel) + 1;
+        stackLevel = new int[stackSize];
+        stackFace = new int[stackSize];
+        stackPending = new long[stackSize];
+    }
+
+    // Sum the final level points inside the FoR of every lit sensor into
+    // sum and return how many there were
+    public int search(SensorCluster c, Cone forCone, Vector3 sum) {
+        if (litSensors.length < c.size) {
+            litSensors = new int[c.size];
+        }
+        int litCount = 0;
+        for (int word = 0; word < c.visible.length; word++) {
+            long lit = c.visible[word];
+            while (lit != 0L) {
+                litSensors[litCount++] = (word << 6) + Long.numberOfTrailingZeros(lit);
+                lit &= lit - 1L;
+            }
+        }
+
+        final double cosF = forCone.cosHalfAngle;
+        final double sinF = Math.sin(forCone.halfAngle);
+        double sumX = 0d;
+        double sumY = 0d;
+        double sumZ = 0d;
+        int count = 0;
+        int top = 0;
+        facesVisited = 0;
+        final boolean trackPending = (litCount <= 64);
+        final long allLit = (litCount == 64) ? -1L : (1L << litCount) - 1L;
+        for (int face = levels[startLevel].size - 1; face >= 0; face--) {
+            stackLevel[top] = startLevel;
+            stackPending[top] = allLit;
+            stackFace[top++] = face;
+        }
+
+        while (top > 0) {
+            final int level = stackLevel[--top];
+            final int face = stackFace[top];
+            final long pending = stackPending[top];
+            long stillPending = 0L;
+            final Icosphere ico = levels[level];
+            final boolean leaf = (level == endLevel);
+            final double px = ico.x[face] * radius;
+            final double py = ico.y[face] * radius;
+            final double pz = ico.z[face] * radius;
+            final double spread = ico.angularRadius[face] * radius;
+            facesVisited++;
+
+            int state = IN;
+            long bits = pending;
+            int next = 0;
+            while (state != OUT) {
+                final int lit;
+                if (trackPending) {
+                    if (bits == 0L) break;
+                    lit = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1L;
+                } else {
+                    if (next == litCount) break;
+                    lit = next++;
+                }
+                final int s = litSensors[lit];
+                final double dx = px - c.posX[s];
+                final double dy = py - c.posY[s];
+                final double dz = pz - c.posZ[s];
+                final double dot = (c.normX[s]*dx)+(c.normY[s]*dy)+(c.normZ[s]*dz);
+                final double distSq = (dx*dx)+(dy*dy)+(dz*dz);
+                if (leaf) {
+                    if (!forCone.within(dot, distSq)) state = OUT;
+                    continue;
+                }
+                final double dist = Math.sqrt(distSq);
+                if (spread >= dist) {
+                    // The face may be more than 90 degrees across as seen
+                    // from the sensor, so no bound holds, look closer
+                    state = PARTIAL;
+                    stillPending |= 1L << lit;
+                    continue;
+                }
+                final double cosTheta = dot / dist;
+                final double sinDelta = spread / dist;
+                final double cosDelta = Math.sqrt(1d - sinDelta*sinDelta);
+                final double cosNarrow = cosF*cosDelta + sinF*sinDelta; // cos(F - delta)
+                final double cosWide = cosF*cosDelta - sinF*sinDelta; // cos(F + delta)
+                if (cosTheta <= cosWide) {
+                    state = OUT;
+                } else if (!((cosDelta > cosF) && (cosTheta > cosNarrow))) {
+                    // Not inside with room to spare, or the face is wider
+                    // than the cone itself
+                    state = PARTIAL;
+                    stillPending |= 1L << lit;
+                }
+            }
+
+            if (state == IN) {
+                sumX += subtreeSumX[level][face];
+                sumY += subtreeSumY[level][face];
+                sumZ += subtreeSumZ[level][face];
+                count += 1 << (2 * (endLevel - level));
+            } else if (state == PARTIAL) {
+                for (int child = 4 * face + 3; child >= 4 * face; child--) {
+                    stackLevel[top] = level + 1;
+                    stackPending[top] = trackPending ? stillPending : allLit;
+                    stackFace[top++] = child;
+                }
+            }
+        }
+        sum.set(sumX, sumY, sumZ);
+        return count;
+    }
+}
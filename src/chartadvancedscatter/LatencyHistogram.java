@@ -0,0 +1,119 @@
+package chartadvancedscatter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock free log linear histogram of latencies in nanoseconds, after
+// HdrHistogram. Values below 2 * SUB_BUCKETS have a bucket each, above that
+// every power of two is split into SUB_BUCKETS buckets so any value is kept
+// to within 1/SUB_BUCKETS (1.6%). Recording is one atomic increment and
+// add, plus a compare and set only on a new maximum, so any number of
+// threads can record into one histogram.
+//
+// The readers sum the buckets as they find them, a read while others are
+// recording sees each bucket at some point during the read rather than all
+// of them at one instant.
+public class LatencyHistogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_BITS = 40; // About 18 minutes, longer values are clamped
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1L;
+    private static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        final long value = (nanos < 0L) ? 0L : Math.min(nanos, MAX_VALUE);
+        counts.incrementAndGet(bucket(value));
+        total.addAndGet(value);
+        long seen = max.get();
+        while ((value > seen) && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    private static int bucket(long value) {
+        final int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    // Largest value that falls in bucket
+    private static long highestInBucket(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket >>> SUB_BITS) - 1;
+        final long lowest = (long) (bucket - (shift << SUB_BITS)) << shift;
+        return lowest + (1L << shift) - 1L;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long count = getCount();
+        return (count == 0) ? 0d : (double) total.get() / count;
+    }
+
+    // Value at fraction (0..1) of the recorded values, to the histogram's
+    // precision and never above the maximum
+    public long getValueAtPercentile(double fraction) {
+        final long count = getCount();
+        if (count == 0) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestInBucket(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Add other's values into this one
+    public LatencyHistogram add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            final long count = other.counts.get(bucket);
+            if (count != 0) {
+                counts.addAndGet(bucket, count);
+            }
+        }
+        total.addAndGet(other.total.get());
+        final long otherMax = other.max.get();
+        long seen = max.get();
+        while ((otherMax > seen) && !max.compareAndSet(seen, otherMax)) {
+            seen = max.get();
+        }
+        return this;
+    }
+
+    // Forget every value, values recorded during the reset may or may not
+    // survive it
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0L);
+        }
+        total.set(0L);
+        max.set(0L);
+    }
+
+    public String toString() {
+        return String.format("n %d mean %.1fus p50 %.1fus p99 %.1fus p99.9 %.1fus max %.1fus",
+                getCount(), getMean() / 1e3d, getValueAtPercentile(0.5d) / 1e3d, getValueAtPercentile(0.99d) / 1e3d,
+                getValueAtPercentile(0.999d) / 1e3d, getMax() / 1e3d);
+    }
+}
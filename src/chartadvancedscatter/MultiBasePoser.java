@@ -0,0 +1,222 @@
+package chartadvancedscatter;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Poses one sensor cluster seen by several base stations. Each base has its
+// own Poser over a view of the shared cluster geometry, and the per base
+// stages (angles, bearing, range and refinement) run concurrently on the
+// executor, one task per base with the caller taking the first. The per base
+// poses are taken into the room frame and the best one seeds a joint
+// refinement over the residuals of every base, so more bases add
+// measurements without adding a stage to the frame. Only when that seed
+// does not fit the other bases are the remaining ones tried.
+public class MultiBasePoser implements PoseSolver {
+    private static final int ANGLES = 0;
+    private static final int SOLVE = 1;
+
+    public final BaseStation[] bases;
+    public final Poser[] posers;
+    public final PoseEstimate[] baseEstimates; // Per base result, in the room frame
+    public final PoseRefiner fusion;
+    private final ExecutorService executor; // Null runs every base on the caller
+    private final BaseTask[] tasks;
+    private final Future<?>[] running;
+    private final int[] seedOrder;
+    private final PoseEstimate fusedTrial = new PoseEstimate();
+    private final PoseEstimate fusedBest = new PoseEstimate();
+
+    // Joint residual RMS (radians) below which a fused pose is taken without
+    // trying the other bases as seeds
+    public double fusionAcceptRms = 1e-3;
+
+    // Joint refinements tried per frame at most, the best seed and then the
+    // next ones in order, so the fusion cost does not grow with the bases
+    public int fusionSeeds = 2;
+
+    // Cluster pose used when the sweep angles are synthesised, room frame
+    public Vector3 clusterPosition = new Vector3();
+    public Quaternion clusterOrientation = new Quaternion();
+
+    // Solve every base on the calling thread
+    public MultiBasePoser(SensorCluster geometry, BaseStation[] bases) {
+        this(geometry, bases, null);
+    }
+
+    // Solve the bases after the first on executor, which should have a
+    // thread for each of them to keep the frame latency flat
+    public MultiBasePoser(SensorCluster geometry, BaseStation[] bases, ExecutorService executor) {
+        if (bases.length == 0) {
+            throw new IllegalArgumentException("At least one base station is needed");
+        }
+        this.bases = bases;
+        this.executor = executor;
+        posers = new Poser[bases.length];
+        baseEstimates = new PoseEstimate[bases.length];
+        tasks = new BaseTask[bases.length];
+        running = new Future<?>[bases.length];
+        seedOrder = new int[bases.length];
+        for (int base = 0; base < bases.length; base++) {
+            posers[base] = new Poser((base == 0) ? geometry : new SensorCluster(geometry));
+            baseEstimates[base] = new PoseEstimate();
+            tasks[base] = new BaseTask(base);
+        }
+        fusion = new PoseRefiner(bases.length);
+    }
+
+    public int getBaseCount() {
+        return bases.length;
+    }
+
+    // Load the measured sweep angles of one base, as Poser.setSensorAngles
+    public MultiBasePoser setSensorAngles(int base, double[] azimuths, double[] elevations, boolean[] visible) {
+        posers[base].setSensorAngles(azimuths, elevations, visible);
+        return this;
+    }
+
+    // Synthesise the sweep angles every base would see of the cluster at
+    // clusterPosition and clusterOrientation
+    public void getLitSensorAngles() {
+        runAll(ANGLES);
+    }
+
+    // Solve every base, then refine the pose against all of them together
+    public PoseEstimate solve(PoseEstimate result) {
+        runAll(SOLVE);
+
+        // Valid bases, lowest residual first with unrefined estimates last
+        int candidates = 0;
+        int litTotal = 0;
+        for (int base = 0; base < bases.length; base++) {
+            litTotal += posers[base].cluster.litCount;
+            if (!baseEstimates[base].valid) continue;
+            final double rms = seedRank(base);
+            int slot = candidates++;
+            while ((slot > 0) && (seedRank(seedOrder[slot - 1]) > rms)) {
+                seedOrder[slot] = seedOrder[slot - 1];
+                slot--;
+            }
+            seedOrder[slot] = base;
+        }
+        if (candidates == 0) {
+            result.setInvalid();
+            result.litSensorCount = litTotal;
+            return result;
+        }
+
+        fusion.clearViews();
+        for (int base = 0; base < bases.length; base++) {
+            fusion.addView(posers[base].cluster, bases[base].orientation, bases[base].position);
+        }
+
+        // A base whose own estimate fell into a local minimum drags the joint
+        // refinement into it too, so when the best seed does not fit every
+        // base within fusionAcceptRms try the next, up to fusionSeeds
+        fusedBest.setInvalid();
+        final int tries = Math.min(candidates, Math.max(1, fusionSeeds));
+        for (int candidate = 0; candidate < tries; candidate++) {
+            fusedTrial.set(baseEstimates[seedOrder[candidate]]);
+            if (fusion.refine(fusedTrial.position, fusedTrial.orientation)) {
+                fusedTrial.residualRms = fusion.getResidualRms();
+            } else {
+                fusedTrial.residualRms = Double.POSITIVE_INFINITY;
+            }
+            if (!fusedBest.valid || (fusedTrial.residualRms < fusedBest.residualRms)) {
+                fusedBest.set(fusedTrial);
+            }
+            if (fusedBest.residualRms <= fusionAcceptRms) break;
+        }
+        if (fusedBest.residualRms == Double.POSITIVE_INFINITY) {
+            // No seed puts the cluster in front of every base that sees it
+            result.setInvalid();
+        } else {
+            result.set(fusedBest);
+        }
+        result.litSensorCount = litTotal;
+        return result;
+    }
+
+    private double seedRank(int base) {
+        final double rms = baseEstimates[base].residualRms;
+        return Double.isNaN(rms) ? Double.POSITIVE_INFINITY : rms;
+    }
+
+
+    // Run one stage for every base, bases after the first on the executor
+    private void runAll(int stage) {
+        for (int base = 0; base < bases.length; base++) {
+            tasks[base].stage = stage;
+        }
+        if (executor == null) {
+            for (int base = 0; base < bases.length; base++) {
+                tasks[base].run();
+            }
+            return;
+        }
+        for (int base = 1; base < bases.length; base++) {
+            running[base] = executor.submit(tasks[base]);
+        }
+        boolean callerDone = false;
+        try {
+            tasks[0].run();
+            callerDone = true;
+        } finally {
+            // Wait for every base even when the caller's share threw, so none
+            // is left writing its scratch into the next stage
+            final Throwable failure = awaitAll();
+            if (callerDone && (failure != null)) {
+                throw new IllegalStateException("A base station stage failed", failure);
+            }
+        }
+    }
+
+    // Wait for every submitted base and return the first failure, if any
+    private Throwable awaitAll() {
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (int base = 1; base < bases.length; base++) {
+            while (running[base] != null) {
+                try {
+                    running[base].get();
+                    running[base] = null;
+                } catch (InterruptedException wakeUp) {
+                    interrupted = true;
+                } catch (ExecutionException failed) {
+                    running[base] = null;
+                    if (failure == null) failure = failed.getCause();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failure;
+    }
+
+    private class BaseTask implements Runnable {
+        final int base;
+        int stage;
+
+        BaseTask(int base) {
+            this.base = base;
+        }
+
+        public void run() {
+            final Poser poser = posers[base];
+            final BaseStation station = bases[base];
+            if (stage == ANGLES) {
+                station.toBase(clusterPosition, poser.base1OriginPosition);
+                station.toBase(clusterOrientation, poser.clusterOrientation);
+                poser.getLitSensorAngles();
+            } else {
+                final PoseEstimate estimate = baseEstimates[base];
+                poser.solve(estimate);
+                if (estimate.valid) {
+                    station.toRoom(estimate.position, estimate.position);
+                    station.toRoom(estimate.orientation, estimate.orientation);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package chartadvancedscatter;
+
+// The result of one run of the poser. Position is the estimated offset of
+// the base station from the cluster origin, orientation is the estimated
+// rotation of the cluster.
+public class PoseEstimate {
+	public Vector3 position = new Vector3();
+	public Quaternion orientation = new Quaternion();
+	public int litSensorCount;
+	public int icoSpherePointCount;
+	public double residualRms = Double.NaN; // Radians, NaN when the pose was not refined
+	public boolean valid;
+
+	public PoseEstimate () {
+	}
+
+	public PoseEstimate (final PoseEstimate inPose) {
+		this.set(inPose);
+	}
+
+	public String toString () {
+		return "{" + position + "," + orientation + "," + litSensorCount + "," + icoSpherePointCount + "," + residualRms + "," + valid + "}";
+	}
+
+	public PoseEstimate set (final PoseEstimate inPose) {
+		position.set(inPose.position);
+		orientation.setTo(inPose.orientation);
+		litSensorCount = inPose.litSensorCount;
+		icoSpherePointCount = inPose.icoSpherePointCount;
+		residualRms = inPose.residualRms;
+		valid = inPose.valid;
+		return this;
+	}
+
+	public PoseEstimate setInvalid () {
+		position.setZero();
+		orientation.setToIdent();
+		litSensorCount = 0;
+		icoSpherePointCount = 0;
+		residualRms = Double.NaN;
+		valid = false;
+		return this;
+	}
+
+	public PoseEstimate copy () {
+		return new PoseEstimate(this);
+	}
+}
@@ -0,0 +1,307 @@
+package chartadvancedscatter;
+
+// Levenberg-Marquardt refinement of a cluster pose against the measured sweep
+// angles. The pose is a position T and orientation R, and sensor i is seen by
+// a base at
+//   v = B' (T + R p_i - o)
+// where B and o are the base's orientation and position (identity and zero
+// for the base the pose is expressed in). Each lit sensor gives two residuals,
+//   az = asin(v.y / |v|),  el = atan(v.z / v.x)
+// which are the angles getLitSensorAngles produces. The six unknowns are a
+// position step and a small rotation applied on the left of R, so the normal
+// equations are 6x6 and are solved by Cholesky. Every buffer is allocated when
+// the refiner is built, a refine call allocates nothing.
+public class PoseRefiner {
+    private static final int PARAMS = 6;
+    private static final double LAMBDA_START = 1e-6;
+    private static final double LAMBDA_MAX = 1e10;
+
+    // Stop once a step would move less than this (meters and radians), well
+    // under the 7.85e-6 rad resolution of the sweep timing
+    public double stepTolerance = 1e-7;
+    public int maxIterations = 20;
+
+    // Predict the angles with FastTrig rather than Math
+    public boolean fastTrig = false;
+
+    // Observation views, one per base
+    private final SensorCluster[] viewClusters;
+    private final double[] viewRotation; // Row major B per view
+    private final double[] viewOffset; // o per view
+    private int viewCount;
+
+    // Normal equations, JtJ row major and Jt r, at the current pose and at
+    // the trial pose. The trial pair is swapped in when a step is accepted so
+    // the angles are only worked out once per pose.
+    private double[] normal = new double[PARAMS * PARAMS];
+    private double[] gradient = new double[PARAMS];
+    private double[] trialNormal = new double[PARAMS * PARAMS];
+    private double[] trialGradient = new double[PARAMS];
+    private final double[] damped = new double[PARAMS * PARAMS];
+    private final double[] step = new double[PARAMS];
+    private final double[] rotation = new double[9];
+
+    // Candidate pose while a step is tried
+    private final Vector3 trialPosition = new Vector3();
+    private final Quaternion trialOrientation = new Quaternion();
+
+    // Results of the last refine
+    public int iterations;
+    public int residualCount;
+    public double cost; // Sum of squared residuals, radians^2
+    public boolean converged;
+
+    public PoseRefiner() {
+        this(1);
+    }
+
+    public PoseRefiner(int maxViews) {
+        viewClusters = new SensorCluster[maxViews];
+        viewRotation = new double[maxViews * 9];
+        viewOffset = new double[maxViews * 3];
+    }
+
+    public PoseRefiner clearViews() {
+        for (int view = 0; view < viewCount; view++) {
+            viewClusters[view] = null;
+        }
+        viewCount = 0;
+        return this;
+    }
+
+    // Add the lit sensors of a cluster as seen from the base the pose is
+    // expressed in
+    public PoseRefiner addView(SensorCluster cluster) {
+        return addView(cluster, null, null);
+    }
+
+    // Add the lit sensors of a cluster as seen from a base at baseOffset with
+    // baseOrientation, both in the frame of the pose. Null means identity or
+    // zero.
+    public PoseRefiner addView(SensorCluster cluster, Quaternion baseOrientation, Vector3 baseOffset) {
+        if (viewCount == viewClusters.length) {
+            throw new IllegalStateException("PoseRefiner holds at most " + viewClusters.length + " views");
+        }
+        final int view = viewCount++;
+        viewClusters[view] = cluster;
+        if (baseOrientation == null) {
+            for (int i = 0; i < 9; i++) {
+                viewRotation[view * 9 + i] = ((i & 3) == 0) ? 1d : 0d;
+            }
+        } else {
+            baseOrientation.toRotationMatrix(rotation);
+            System.arraycopy(rotation, 0, viewRotation, view * 9, 9);
+        }
+        viewOffset[view * 3] = (baseOffset == null) ? 0d : baseOffset.x;
+        viewOffset[view * 3 + 1] = (baseOffset == null) ? 0d : baseOffset.y;
+        viewOffset[view * 3 + 2] = (baseOffset == null) ? 0d : baseOffset.z;
+        return this;
+    }
+
+    public int getResidualCount() {
+        int count = 0;
+        for (int view = 0; view < viewCount; view++) {
+            count += 2 * viewClusters[view].litCount;
+        }
+        return count;
+    }
+
+    public double getResidualRms() {
+        return (residualCount == 0) ? 0d : Math.sqrt(cost / residualCount);
+    }
+
+
+    // Refine position and orientation in place from their current values.
+    // Returns false, leaving them untouched, when there are fewer residuals
+    // than unknowns or the starting pose puts a lit sensor behind a base.
+    public boolean refine(Vector3 position, Quaternion orientation) {
+        iterations = 0;
+        converged = false;
+        residualCount = getResidualCount();
+        if (residualCount < PARAMS) {
+            cost = 0d;
+            return false;
+        }
+        // Normalised in scratch so a rejected start is left as it came
+        trialOrientation.setTo(orientation).norm();
+        cost = buildNormalEquations(position, trialOrientation, normal, gradient);
+        if (cost == Double.POSITIVE_INFINITY) {
+            return false;
+        }
+        orientation.setTo(trialOrientation);
+        double lambda = LAMBDA_START;
+
+        while (iterations < maxIterations) {
+            iterations++;
+            boolean accepted = false;
+            while (!accepted) {
+                if (lambda > LAMBDA_MAX) {
+                    converged = true; // No step reduces the cost any further
+                    return true;
+                }
+                if (!solveDamped(lambda)) {
+                    lambda *= 10d;
+                    continue;
+                }
+                final double stepSq = (step[0]*step[0])+(step[1]*step[1])+(step[2]*step[2])
+                        +(step[3]*step[3])+(step[4]*step[4])+(step[5]*step[5]);
+                if ((lambda <= LAMBDA_START) && (stepSq < stepTolerance * stepTolerance)) {
+                    // Close to Gauss-Newton and the step is negligible, so
+                    // the current pose is as good as the next one
+                    converged = true;
+                    return true;
+                }
+                applyStep(position, orientation);
+                final double trialCost = buildNormalEquations(trialPosition, trialOrientation, trialNormal, trialGradient);
+                if (trialCost < cost) {
+                    accepted = true;
+                    cost = trialCost;
+                    lambda = Math.max(lambda * 0.1d, 1e-12);
+                } else {
+                    lambda *= 10d;
+                }
+            }
+            position.set(trialPosition);
+            orientation.setTo(trialOrientation);
+            double[] swap = normal;
+            normal = trialNormal;
+            trialNormal = swap;
+            swap = gradient;
+            gradient = trialGradient;
+            trialGradient = swap;
+        }
+        return true;
+    }
+
+
+    // Fill the upper triangle of JtJ and Jt r at the given pose and return
+    // the cost there. J is the derivative of the modelled angles, so the
+    // Gauss-Newton step solves JtJ step = Jt r. The angles are the same for
+    // v and (-v.x, v.y, -v.z), so a pose that puts a lit sensor behind a base
+    // is given an infinite cost rather than matching the mirrored pose.
+    private double buildNormalEquations(Vector3 position, Quaternion orientation, double[] a, double[] g) {
+        for (int i = 0; i < a.length; i++) a[i] = 0d;
+        for (int i = 0; i < PARAMS; i++) g[i] = 0d;
+        final double[] m = orientation.toRotationMatrix(rotation);
+        double sum = 0d;
+
+        for (int view = 0; view < viewCount; view++) {
+            final SensorCluster c = viewClusters[view];
+            final int b = view * 9;
+            final double[] bm = viewRotation;
+            final double ox = position.x - viewOffset[view * 3];
+            final double oy = position.y - viewOffset[view * 3 + 1];
+            final double oz = position.z - viewOffset[view * 3 + 2];
+            for (int word = 0; word < c.visible.length; word++) {
+                long lit = c.visible[word];
+                while (lit != 0L) {
+                    final int s = (word << 6) + Long.numberOfTrailingZeros(lit);
+                    lit &= lit - 1L;
+
+                    // R p, then the base centric vector v = B' (T + R p - o)
+                    final double qx = m[0]*c.posX[s] + m[1]*c.posY[s] + m[2]*c.posZ[s];
+                    final double qy = m[3]*c.posX[s] + m[4]*c.posY[s] + m[5]*c.posZ[s];
+                    final double qz = m[6]*c.posX[s] + m[7]*c.posY[s] + m[8]*c.posZ[s];
+                    final double wx = ox + qx, wy = oy + qy, wz = oz + qz;
+                    final double vx = bm[b]*wx + bm[b+3]*wy + bm[b+6]*wz;
+                    final double vy = bm[b+1]*wx + bm[b+4]*wy + bm[b+7]*wz;
+                    final double vz = bm[b+2]*wx + bm[b+5]*wy + bm[b+8]*wz;
+                    if (!(vx > 0d)) {
+                        return Double.POSITIVE_INFINITY;
+                    }
+
+                    final double xzSq = (vx*vx)+(vz*vz);
+                    final double rSq = xzSq+(vy*vy);
+                    final double xz = Math.sqrt(xzSq);
+                    final double r = Math.sqrt(rSq);
+                    final double azResidual = c.az[s] - (fastTrig ? FastTrig.asin(vy/r) : Math.asin(vy/r));
+                    final double elResidual = c.el[s] - (fastTrig ? FastTrig.atan(vz/vx) : Math.atan(vz/vx));
+                    sum += (azResidual*azResidual)+(elResidual*elResidual);
+
+                    // Angle gradients wrt v, rotated back into the pose frame
+                    // by B. The position rows are that gradient, the rotation
+                    // rows are (R p) x gradient.
+                    final double azScale = -vy/(rSq*xz);
+                    accumulate(a, g, bm, b, azScale*vx, xz/rSq, azScale*vz, qx, qy, qz, azResidual);
+                    accumulate(a, g, bm, b, -vz/xzSq, 0d, vx/xzSq, qx, qy, qz, elResidual);
+                }
+            }
+        }
+        return (sum == sum) ? sum : Double.POSITIVE_INFINITY;
+    }
+
+    private static void accumulate(double[] a, double[] g, double[] bm, int b,
+            double dvx, double dvy, double dvz, double qx, double qy, double qz, double residual) {
+        final double j0 = bm[b]*dvx + bm[b+1]*dvy + bm[b+2]*dvz;
+        final double j1 = bm[b+3]*dvx + bm[b+4]*dvy + bm[b+5]*dvz;
+        final double j2 = bm[b+6]*dvx + bm[b+7]*dvy + bm[b+8]*dvz;
+        final double j3 = qy*j2 - qz*j1;
+        final double j4 = qz*j0 - qx*j2;
+        final double j5 = qx*j1 - qy*j0;
+        a[0] += j0*j0; a[1] += j0*j1; a[2] += j0*j2; a[3] += j0*j3; a[4] += j0*j4; a[5] += j0*j5;
+        a[7] += j1*j1; a[8] += j1*j2; a[9] += j1*j3; a[10] += j1*j4; a[11] += j1*j5;
+        a[14] += j2*j2; a[15] += j2*j3; a[16] += j2*j4; a[17] += j2*j5;
+        a[21] += j3*j3; a[22] += j3*j4; a[23] += j3*j5;
+        a[28] += j4*j4; a[29] += j4*j5;
+        a[35] += j5*j5;
+        g[0] += j0*residual; g[1] += j1*residual; g[2] += j2*residual;
+        g[3] += j3*residual; g[4] += j4*residual; g[5] += j5*residual;
+    }
+
+    // Solve (JtJ + lambda diag(JtJ)) step = Jt r by Cholesky, false when the
+    // damped matrix is not positive definite
+    private boolean solveDamped(double lambda) {
+        final double[] l = damped;
+        for (int row = 0; row < PARAMS; row++) {
+            for (int col = row; col < PARAMS; col++) {
+                l[row * PARAMS + col] = normal[row * PARAMS + col];
+            }
+            l[row * PARAMS + row] += lambda * Math.max(normal[row * PARAMS + row], 1e-12);
+        }
+        // Factor in place, L' in the upper triangle
+        for (int row = 0; row < PARAMS; row++) {
+            double diag = l[row * PARAMS + row];
+            for (int k = 0; k < row; k++) {
+                diag -= l[k * PARAMS + row] * l[k * PARAMS + row];
+            }
+            if (!(diag > 0d)) {
+                return false;
+            }
+            diag = Math.sqrt(diag);
+            l[row * PARAMS + row] = diag;
+            for (int col = row + 1; col < PARAMS; col++) {
+                double value = l[row * PARAMS + col];
+                for (int k = 0; k < row; k++) {
+                    value -= l[k * PARAMS + row] * l[k * PARAMS + col];
+                }
+                l[row * PARAMS + col] = value / diag;
+            }
+        }
+        // L y = g, then L' step = y
+        for (int row = 0; row < PARAMS; row++) {
+            double value = gradient[row];
+            for (int k = 0; k < row; k++) {
+                value -= l[k * PARAMS + row] * step[k];
+            }
+            step[row] = value / l[row * PARAMS + row];
+        }
+        for (int row = PARAMS - 1; row >= 0; row--) {
+            double value = step[row];
+            for (int k = row + 1; k < PARAMS; k++) {
+                value -= l[row * PARAMS + k] * step[k];
+            }
+            step[row] = value / l[row * PARAMS + row];
+        }
+        return true;
+    }
+
+    // trial = (T + dT, exp(dTheta) R)
+    private void applyStep(Vector3 position, Quaternion orientation) {
+        trialPosition.set(position.x + step[0], position.y + step[1], position.z + step[2]);
+        final double angle = Math.sqrt((step[3]*step[3])+(step[4]*step[4])+(step[5]*step[5]));
+        final double scale = (angle < 1e-12) ? 0.5d : Math.sin(angle * 0.5d) / angle;
+        trialOrientation.setTo(orientation);
+        trialOrientation.mulLeft(step[3] * scale, step[4] * scale, step[5] * scale, Math.cos(angle * 0.5d));
+        trialOrientation.norm();
+    }
+}
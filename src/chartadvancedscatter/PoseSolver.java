@@ -0,0 +1,7 @@
+package chartadvancedscatter;
+
+// Anything that turns the sweep angles it currently holds into a pose. The
+// angles are loaded through the implementation, solve only reads them.
+public interface PoseSolver {
+    PoseEstimate solve(PoseEstimate result);
+}
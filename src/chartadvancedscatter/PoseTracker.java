@@ -0,0 +1,177 @@
+package chartadvancedscatter;
+
+// Tracking mode over a Poser. While the lock is held each frame's pose is
+// predicted from the last one by constant velocity Kalman filters, one over
+// position and one over a rotation vector applied on the left of the last
+// orientation, and the prediction seeds the refinement directly so the
+// IcoSphere bearing and range stages are skipped. A frame that fails to
+// refine, fits badly, or arrives after the lock has coasted for too long
+// falls back to the full cold start pipeline, and a good cold start takes
+// the lock again. When the cold start fails too, the last good pose is
+// tried as a seed before the frame is given up.
+public class PoseTracker implements PoseSolver {
+    public final Poser poser;
+    public final ConstantVelocityFilter positionFilter;
+    public final ConstantVelocityFilter rotationFilter; // Rotation vector since orientation
+    public final Quaternion orientation = new Quaternion(); // Filtered orientation at lastTime
+
+    // Tuning
+    public double framePeriod = 1d / 120d; // Seconds, used when no frame time is given
+    public double maxCoast = 0.1d; // Seconds without a good frame before the lock is dropped
+    public double lockRms = 2e-3d; // Radians, a worse fit is treated as lost
+    public int minLitSensors = 4;
+    public boolean reportFiltered = false; // Report the filtered pose rather than the refined one
+
+    // State
+    public boolean locked;
+    public long warmFrames;
+    public long coldFrames;
+    public long lostLocks;
+    public Vector3 predictedPosition = new Vector3();
+    public Quaternion predictedOrientation = new Quaternion();
+    private double lastTime;
+    private double frameTime;
+    private boolean frameTimeSet;
+    private boolean hasPose; // orientation and the filters hold a pose from some earlier frame
+
+    public PoseTracker(Poser poser) {
+        this.poser = poser;
+        positionFilter = new ConstantVelocityFilter(10d, 1e-6d); // m/s^2 noise, 1mm measurements
+        rotationFilter = new ConstantVelocityFilter(100d, 1e-5d); // rad/s^2 noise, 0.2deg measurements
+    }
+
+    // Time (seconds) of the frame about to be solved, otherwise each frame
+    // is taken to be framePeriod after the one before
+    public PoseTracker setFrameTime(double seconds) {
+        frameTime = seconds;
+        frameTimeSet = true;
+        return this;
+    }
+
+    // Drop the lock, the next frame is a cold start
+    public PoseTracker reset() {
+        locked = false;
+        return this;
+    }
+
+    public PoseEstimate solve(PoseEstimate result) {
+        final double now = frameTimeSet ? frameTime : lastTime + framePeriod;
+        frameTimeSet = false;
+        final SensorCluster c = poser.cluster;
+
+        if (locked) {
+            final double dt = now - lastTime;
+            if ((dt < 0d) || (dt > maxCoast)) {
+                locked = false;
+                lostLocks++;
+            } else if ((c.litCount >= minLitSensors) && refineFromPrediction(dt)) {
+                warmFrames++;
+                lastTime = now;
+                return report(result, 0);
+            }
+        }
+
+        // Cold start
+        coldFrames++;
+        poser.solve(result);
+        if (!result.valid || !(result.residualRms <= lockRms) || (c.litCount < minLitSensors)) {
+            if (hasPose && (c.litCount >= minLitSensors) && refineFromLastPose()) {
+                // The cold start assumes an unrotated cluster, the last good
+                // pose is often the better guess
+                report(result, 0);
+                locked = false;
+                return acquire(result, now);
+            }
+            if (locked && ((now - lastTime) > maxCoast)) {
+                locked = false;
+                lostLocks++;
+            }
+            return result;
+        }
+        return acquire(result, now);
+    }
+
+    // Take the lock, or keep it, from a good fit outside the warm path
+    private PoseEstimate acquire(PoseEstimate result, double now) {
+        if (!locked) {
+            positionFilter.reset(result.position.x, result.position.y, result.position.z, 1d);
+            rotationFilter.reset(0d, 0d, 0d, 1d);
+            orientation.setTo(result.orientation);
+        } else {
+            updateFilters(now - lastTime, result.position, result.orientation);
+        }
+        locked = true;
+        hasPose = true;
+        lastTime = now;
+        if (reportFiltered) {
+            return report(result, result.icoSpherePointCount);
+        }
+        return result;
+    }
+
+    // Seed the refinement from the filters' prediction, true when the refined
+    // pose fits well enough to keep the lock
+    private boolean refineFromPrediction(double dt) {
+        predictedPosition.set(positionFilter.predicted(0, dt), positionFilter.predicted(1, dt), positionFilter.predicted(2, dt));
+        rotate(orientation, rotationFilter.predicted(0, dt), rotationFilter.predicted(1, dt), rotationFilter.predicted(2, dt), predictedOrientation);
+
+        poser.refinedPosition.set(predictedPosition);
+        poser.refinedOrientation.setTo(predictedOrientation);
+        if (!poser.refinePoseFromSensorAngles() || !(poser.refiner.getResidualRms() <= lockRms)) {
+            return false;
+        }
+        updateFilters(dt, poser.refinedPosition, poser.refinedOrientation);
+        return true;
+    }
+
+    // Refine from the last filtered pose with no motion, true when it fits
+    private boolean refineFromLastPose() {
+        poser.refinedPosition.set(positionFilter.value[0], positionFilter.value[1], positionFilter.value[2]);
+        poser.refinedOrientation.setTo(orientation);
+        return poser.refinePoseFromSensorAngles() && (poser.refiner.getResidualRms() <= lockRms);
+    }
+
+    private void updateFilters(double dt, Vector3 position, Quaternion measured) {
+        positionFilter.update(dt, position.x, position.y, position.z);
+
+        // Measured rotation since orientation, as a rotation vector, then
+        // fold the filtered rotation into orientation and start again at zero
+        final double qx = orientation.x, qy = orientation.y, qz = orientation.z, qw = orientation.w;
+        double rw = measured.w*qw + measured.x*qx + measured.y*qy + measured.z*qz;
+        double rx = -measured.w*qx + measured.x*qw - measured.y*qz + measured.z*qy;
+        double ry = -measured.w*qy + measured.y*qw - measured.z*qx + measured.x*qz;
+        double rz = -measured.w*qz + measured.z*qw - measured.x*qy + measured.y*qx;
+        if (rw < 0d) {
+            rw = -rw; rx = -rx; ry = -ry; rz = -rz;
+        }
+        final double sinHalf = Math.sqrt((rx*rx)+(ry*ry)+(rz*rz));
+        final double scale = (sinHalf < 1e-12) ? 2d : 2d * Math.atan2(sinHalf, rw) / sinHalf;
+        rotationFilter.update(dt, rx * scale, ry * scale, rz * scale);
+        rotate(orientation, rotationFilter.value[0], rotationFilter.value[1], rotationFilter.value[2], orientation);
+        rotationFilter.value[0] = 0d;
+        rotationFilter.value[1] = 0d;
+        rotationFilter.value[2] = 0d;
+    }
+
+    private PoseEstimate report(PoseEstimate result, int icoSpherePointCount) {
+        if (reportFiltered) {
+            result.position.set(positionFilter.value[0], positionFilter.value[1], positionFilter.value[2]);
+            result.orientation.setTo(orientation);
+        } else {
+            result.position.set(poser.refinedPosition);
+            result.orientation.setTo(poser.refinedOrientation);
+        }
+        result.litSensorCount = poser.cluster.litCount;
+        result.icoSpherePointCount = icoSpherePointCount;
+        result.residualRms = poser.refiner.getResidualRms();
+        result.valid = true;
+        return result;
+    }
+
+    // out = exp(rotation vector) * in
+    private static void rotate(Quaternion in, double vx, double vy, double vz, Quaternion out) {
+        final double angle = Math.sqrt((vx*vx)+(vy*vy)+(vz*vz));
+        final double scale = (angle < 1e-12) ? 0.5d : Math.sin(angle * 0.5d) / angle;
+        out.setTo(in).mulLeft(vx * scale, vy * scale, vz * scale, Math.cos(angle * 0.5d)).norm();
+    }
+}
@@ -0,0 +1,713 @@
+package chartadvancedscatter;
+
+// Headless poser engine. Holds the geometry of one sensor cluster and the
+// scratch state needed to turn a set of per-sensor sweep angles into a pose
+// estimate. Everything is allocated in the constructor so that a single
+// instance can be reused for every frame from one thread.
+public class Poser implements PoseSolver {
+    // Photo Diode Info
+    final static double maxAoI = 90d;
+    final static double relPowerRatioVsAoI = 1d/maxAoI;  // Approx to linear 0.9==25deg
+    final static double maxDist = 20d;
+    final static double relPowerRatioVsDist = 1d/maxDist; // Approx drops to zero at 20m
+    final static double minRelPower = 0.05;
+    final static double sensorVisibleAoI = 80d; // Max AoI for a sensor to be lit
+    Cone sensorVisibleCone = Cone.fromDegrees(sensorVisibleAoI);
+
+    // Sensor Cluster Info
+    public final SensorCluster cluster;
+    public Vector3 clusterOriginPosition = new Vector3(0d, 0, 0); // meters
+    public Quaternion clusterOrientation = new Quaternion(); // Used when the sweep angles are synthesised
+    public Spherical3 clusterToBase1Spherical = new Spherical3();
+
+    // Base1 info
+    public Vector3 base1OriginPosition = new Vector3(2.0d,0,0); // meters
+
+    // =================================================================
+    // =================================================================
+    //                    EXPOSED POSER VARIABLES
+    // =================================================================
+    // =================================================================
+    final static double icoSphereRadius = 0.5d; // Use to determine bearing estimates
+    final static double sensorMaxFoR = 75d; // Use to determine bearing estimates
+    Cone sensorFoRCone = Cone.fromDegrees(sensorMaxFoR);
+    final static int defaultIcoSphereLevel = 2; // 320 points
+    public final Icosphere icosphere;
+    final int icoSphereWords;
+    final long[][] sensorIcoSphereMasks; // Bit per IcoSphere point within each sensor's FoR
+    final long[] icoSpherePointWithinAoI;
+    IcosphereSearch bearingSearch; // Null for the flat search over icosphere
+    BearingCache bearingCache; // Null when every frame runs the bearing stage
+    public Vector3 vectorEstimateFromIcoSphere = new Vector3();
+    public Vector3 baseEstPosnFromIcoSphere = new Vector3();
+    public Spherical3 bearingEstimateFromIcoSphere = new Spherical3();
+    public int icoSpherePointCount;
+
+    // Least squares refinement of the range stage's estimate, false stops
+    // the pipeline at the heuristic estimate with an identity orientation
+    public boolean refinePose = true;
+    public final PoseRefiner refiner = new PoseRefiner();
+    public Vector3 refinedPosition = new Vector3();
+    public Quaternion refinedOrientation = new Quaternion();
+
+    // Seed the refinement from a closed form pose when six or more sensors
+    // are lit, falling back to the IcoSphere stages when it cannot
+    public boolean closedFormSeed = false;
+    public final ClosedFormPose closedForm = new ClosedFormPose();
+
+    // Per sensor trig from FastTrig rather than Math, within a tenth of a
+    // sweep clock tick, set through setFastTrig so every stage follows
+    public boolean fastTrig = false;
+
+    // Trace the intermediate values of each stage into tracer, at
+    // TraceBuffer.STAGE or DETAIL, OFF records nothing
+    public int traceLevel = TraceBuffer.OFF;
+    public TraceBuffer tracer;
+
+    // Stage latencies and outcome counts, null records nothing
+    public PoserMetrics metrics;
+
+    // Profiling events for each stage, deviceId is reported with them
+    public PoserEvents events = PoserEvents.get();
+    public int deviceId;
+
+    // Trace messages
+    private static final int TRACE_RANGE = TraceBuffer.define("\n\r\n\rgetInitialRangeFromSensorAngles:", "");
+    private static final int TRACE_RANGE_TOO_FEW = TraceBuffer.define("\n\r   Fewer than two lit sensors, range left as is", "");
+    private static final int TRACE_RANGE_NO_SPREAD = TraceBuffer.define("\n\r   Lit sensors all at the same angles, range left as is", "");
+    private static final int TRACE_BASE_PSN = TraceBuffer.define("\n\r   Base Psn: (%2.4f, %2.4f, %2.4f)", "ddd");
+    private static final int TRACE_CLUSTER_PSN = TraceBuffer.define("\n\r   Clus Psn: (%2.4f, %2.4f, %2.4f)", "ddd");
+    private static final int TRACE_ESTIMATE_PSN = TraceBuffer.define("\n\r   Esti Psn: (%2.4f, %2.4f, %2.4f)", "ddd");
+    private static final int TRACE_WIDEST_PAIR = TraceBuffer.define("\n\r   First Sensor(%d), Second Sensor(%d) - measured angle (%2.4f)", "iid");
+    private static final int TRACE_ANGLE_TO_ESTIMATE = TraceBuffer.define("\n\r   Angle to estimate (%2.4f)", "d");
+    private static final int TRACE_ANGLE_TO_ACTUAL = TraceBuffer.define("\n\r   Angle to actual (%2.4f)", "d");
+    private static final int TRACE_SCALED_PSN = TraceBuffer.define("\n\r   EST Psn: (%2.4f, %2.4f, %2.4f)", "ddd");
+    private static final int TRACE_REFINE = TraceBuffer.define("\n\r\n\rrefinePoseFromSensorAngles:", "");
+    private static final int TRACE_SEED_MOVED = TraceBuffer.define("\n\r   Seed behind the base, moved to (%2.4f, %2.4f, %2.4f)", "ddd");
+    private static final int TRACE_REFINE_TOO_FEW = TraceBuffer.define("\n\r   Too few lit sensors (%d) to refine", "i");
+    private static final int TRACE_ITERATIONS = TraceBuffer.define("\n\r   Iterations %d, converged %b, residual RMS (%2.6f deg)", "ibd");
+    private static final int TRACE_REFINED_PSN = TraceBuffer.define("\n\r   Refined Psn: (%2.4f, %2.4f, %2.4f)", "ddd");
+    private static final int TRACE_REFINED_ORI = TraceBuffer.define("\n\r   Refined Ori: (%2.6f, %2.6f, %2.6f, %2.6f)", "dddd");
+    private static final int TRACE_BEARING = TraceBuffer.define("\n\rgetInitialBearingFromIcoSphere:", "");
+    private static final int TRACE_ICOSPHERE_LIT = TraceBuffer.define("\n\r   IcoSphere Lit: ", "");
+    private static final int TRACE_ICOSPHERE_POINT = TraceBuffer.define("   %d", "i");
+    private static final int TRACE_HIERARCHICAL = TraceBuffer.define("\n\rgetInitialBearingHierarchical:", "");
+    private static final int TRACE_CLOSED_FORM = TraceBuffer.define("\n\rClosed form seed (%2.4f, %2.4f, %2.4f), conditioning %2.3e", "dddd");
+    private static final int TRACE_CLOSED_FORM_FAILED = TraceBuffer.define("\n\rNo closed form seed from %d lit sensors", "i");
+    private static final int TRACE_BEARING_CACHED = TraceBuffer.define("\n\rBearing cache hit, %d IcoSphere points", "i");
+    private static final int TRACE_LEVELS = TraceBuffer.define("\n\r   Levels %d..%d, faces visited %d", "iii");
+    private static final int TRACE_BEARING_SUM = TraceBuffer.define("\n\r   AVG Vector(%d): (%2.8fm, %2.8fm, %2.8fm)", "iddd");
+    private static final int TRACE_BEARING_MEAN = TraceBuffer.define("\n\r   AVG Vector(1): (%2.8fm, %2.8fm, %2.8fm)", "ddd");
+    private static final int TRACE_BASE_ESTIMATE = TraceBuffer.define("\n\r   Base Est: (%2.8fm, %2.8fm, %2.8fm)", "ddd");
+    private static final int TRACE_ANGLES = TraceBuffer.define("\n\r\n\rgetLitSensorAngles:", "");
+    private static final int TRACE_BASE1_POSN = TraceBuffer.define("\n\r   Base 1 Posn (x:%2.4f, y:%2.4f, z:%2.4f)", "ddd");
+    private static final int TRACE_CLUSTER1_POSN = TraceBuffer.define("\n\r   Cluster 1 Posn (x:%2.4f, y:%2.4f, z:%2.4f)", "ddd");
+    private static final int TRACE_CLUSTER_BEARING = TraceBuffer.define("\n\r   Clus to Base Brng (a:%3.4f, e:%3.4f, r:%3.4f), ", "ddd");
+    private static final int TRACE_SENSOR_COLUMNS = TraceBuffer.define("\n\r\n\r   Sens: (Base1 centric x, y, z), (Az Angle, El Angle, Range), AoI, Relative Power", "");
+    private static final int TRACE_SENSOR = TraceBuffer.define("\n\r   %d: ", "i");
+    private static final int TRACE_SENSOR_POSITION = TraceBuffer.define("(%2.4f, %2.4f, %2.4f), ", "ddd");
+    private static final int TRACE_SENSOR_ANGLES = TraceBuffer.define("(%3.4f, %3.4f, %3.4f), ", "ddd");
+    private static final int TRACE_SENSOR_AOI = TraceBuffer.define("%.3f, %.3f, ", "dd");
+    private static final int TRACE_SENSORS_END = TraceBuffer.define("\n\r", "");
+
+    // Scratch items, reused on every call
+    private final Vector3 clusterOriginToBase = new Vector3();
+    private final Vector3 estimateOffset = new Vector3();
+    private final double[] clusterRotation = new double[9];
+    private final SensorDiameter widestPair;
+
+
+    // Build a poser for the default 32 sensor device
+    public Poser() {
+        this(new SensorCluster(DeviceTables.devicePoints, DeviceTables.deviceNormals));
+    }
+
+    // Build a poser around a cluster, the cluster is owned by the poser from
+    // here on and its per frame values are overwritten on every call
+    public Poser(SensorCluster cluster) {
+        this(cluster, Icosphere.level(defaultIcoSphereLevel));
+    }
+
+    // Build a poser which estimates its bearing over the given IcoSphere,
+    // coarse levels are cheaper, dense ones more accurate
+    public Poser(SensorCluster cluster, Icosphere icosphere) {
+        this.cluster = cluster;
+        this.icosphere = icosphere;
+        icoSphereWords = (icosphere.size + 63) >>> 6;
+        sensorIcoSphereMasks = new long[cluster.size][icoSphereWords];
+        icoSpherePointWithinAoI = new long[icoSphereWords];
+        widestPair = new SensorDiameter(cluster.size);
+        buildIcoSphereMasks();
+    }
+
+
+    // The device geometry and the IcoSphere are fixed, so which IcoSphere
+    // points fall within the FoR of each sensor is worked out once here and
+    // the per frame bearing stage only has to AND the masks together.
+    private void buildIcoSphereMasks() {
+        final SensorCluster c = cluster;
+        final Icosphere ico = icosphere;
+        final BatchMath batchMath = BatchMath.get();
+        final double[] toPointX = new double[ico.size];
+        final double[] toPointY = new double[ico.size];
+        final double[] toPointZ = new double[ico.size];
+        for (int count = 0; count < c.size; count++) {
+            for (int spCount = 0; spCount < ico.size; spCount++) {
+                toPointX[spCount] = ico.x[spCount]*icoSphereRadius - c.posX[count];
+                toPointY[spCount] = ico.y[spCount]*icoSphereRadius - c.posY[count];
+                toPointZ[spCount] = ico.z[spCount]*icoSphereRadius - c.posZ[count];
+            }
+            batchMath.coneMask(c.normX[count], c.normY[count], c.normZ[count],
+                    toPointX, toPointY, toPointZ, sensorFoRCone,
+                    sensorIcoSphereMasks[count], ico.size);
+        }
+    }
+
+    // Change the AoI beyond which a sensor is treated as not lit when the
+    // sweep angles are synthesised
+    public Poser setSensorVisibleAoI(double degrees) {
+        sensorVisibleCone = Cone.fromDegrees(degrees);
+        return this;
+    }
+
+    // Change the sensor FoR used for the bearing estimate, the IcoSphere
+    // masks depend on it so they are rebuilt
+    public Poser setSensorMaxFoR(double degrees) {
+        sensorFoRCone = Cone.fromDegrees(degrees);
+        buildIcoSphereMasks();
+        clearBearingCache();
+        return this;
+    }
+
+    // Use a coarse to fine search from startLevel for the bearing estimate,
+    // stopping at the first level finer than resolution (radians)
+    public Poser setHierarchicalBearing(int startLevel, double resolution) {
+        bearingSearch = new IcosphereSearch(startLevel, resolution, icoSphereRadius);
+        clearBearingCache();
+        return this;
+    }
+
+    // Trace into tracer at level, OFF stops tracing
+    public Poser setTrace(TraceBuffer tracer, int level) {
+        if ((tracer == null) && (level > TraceBuffer.OFF)) {
+            throw new IllegalArgumentException("Tracing needs a TraceBuffer");
+        }
+        this.tracer = tracer;
+        traceLevel = level;
+        return this;
+    }
+
+    public Poser setEvents(PoserEvents events, int deviceId) {
+        this.events = events;
+        this.deviceId = deviceId;
+        return this;
+    }
+
+    public Poser setMetrics(PoserMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    // Back to the flat search over every point of icosphere
+    public Poser setFlatBearing() {
+        bearingSearch = null;
+        clearBearingCache();
+        return this;
+    }
+
+    // Skip the bearing stage for lit patterns already seen, cache may be
+    // shared by posers of the same device with the same bearing settings.
+    // Null turns caching off.
+    public Poser setBearingCache(BearingCache cache) {
+        bearingCache = cache;
+        return this;
+    }
+
+    // Seed from ClosedFormPose rather than the IcoSphere bearing and range
+    public Poser setClosedFormSeed(boolean on) {
+        closedFormSeed = on;
+        return this;
+    }
+
+    // FastTrig for the angles, bearings and refinement, false is strict Math
+    public Poser setFastTrig(boolean on) {
+        fastTrig = on;
+        refiner.fastTrig = on;
+        closedForm.fastTrig = on;
+        return this;
+    }
+
+    private void clearBearingCache() {
+        if (bearingCache != null) bearingCache.clear();
+    }
+
+    public int getClusterSize() {
+        return cluster.size;
+    }
+
+
+    // Load measured sweep angles, one entry per sensor. Sensors which were
+    // not hit by both sweeps should have visible set false.
+    public Poser setSensorAngles(double[] azimuths, double[] elevations, boolean[] visible) {
+        final SensorCluster c = cluster;
+        c.clearVisible();
+        for (int count = 0; count < c.size; count++) {
+            c.az[count] = azimuths[count];
+            c.el[count] = elevations[count];
+            c.range[count] = 0d;
+            c.setVisible(count, visible[count]);
+        }
+        c.updateLitCount();
+        return this;
+    }
+
+
+    // Run the bearing and range stages on the currently loaded angles
+    public PoseEstimate solve(PoseEstimate result) {
+        final Object solveEvent = beginSolve();
+        final long start = (metrics == null) ? 0L : System.nanoTime();
+        return solved(solveStages(result, start), start, solveEvent);
+    }
+
+    // The SOLVE profiling event, to be handed to solved. A front end that
+    // finds some poses itself, as RansacPoser does, brackets its work with
+    // beginSolve and solved and calls solveStages for the frames it passes
+    // on, so each frame is recorded once and its time includes the front end
+    Object beginSolve() {
+        return events.begin(PoserMetrics.SOLVE);
+    }
+
+    // The stages of solve, each timed as a lap on from lap, a nanoTime
+    // read when metrics are set
+    PoseEstimate solveStages(PoseEstimate result, long lap) {
+        final PoserMetrics m = metrics;
+        final PoserEvents e = events;
+        if (cluster.litCount < 2) {
+            result.setInvalid();
+            if (m != null) m.tooFewLit();
+            return result;
+        }
+        if (closedFormSeed && (cluster.litCount >= ClosedFormPose.MIN_SENSORS)) {
+            final Object seedEvent = e.begin(PoserMetrics.CLOSED_FORM);
+            final boolean seeded = seedFromClosedForm();
+            if (m != null) lap = m.lap(PoserMetrics.CLOSED_FORM, lap);
+            if (seedEvent != null) e.commit(seedEvent, deviceId, cluster.litCount, 0, closedForm.iterations, Double.NaN);
+            if (seeded) {
+                icoSpherePointCount = 0;
+                if (!refinePose || refinePoseFromSensorAngles()) {
+                    return report(result, refinePose);
+                }
+                // The failed refinement is already timed as REFINE, so the
+                // bearing stage starts after it
+                if (m != null) lap = System.nanoTime();
+            }
+        }
+        Object stageEvent = e.begin(PoserMetrics.BEARING);
+        getInitialBearing();
+        if (m != null) lap = m.lap(PoserMetrics.BEARING, lap);
+        if (stageEvent != null) e.commit(stageEvent, deviceId, cluster.litCount, icoSpherePointCount, 0, Double.NaN);
+        if (icoSpherePointCount == 0) {
+            result.setInvalid();
+            result.litSensorCount = cluster.litCount;
+            if (m != null) m.noBearing();
+            return result;
+        }
+        stageEvent = e.begin(PoserMetrics.RANGE);
+        getInitialRangeFromSensorAngles();
+        if (m != null) lap = m.lap(PoserMetrics.RANGE, lap);
+        if (stageEvent != null) e.commit(stageEvent, deviceId, cluster.litCount, icoSpherePointCount, 0, Double.NaN);
+        refinedPosition.set(vectorEstimateFromIcoSphere);
+        refinedOrientation.setToIdent();
+        final boolean refined = refinePose && refinePoseFromSensorAngles();
+        return report(result, refined);
+    }
+
+    // The refined pose, or the seed when refinement is off or failed
+    private PoseEstimate report(PoseEstimate result, boolean refined) {
+        result.residualRms = refined ? refiner.getResidualRms() : Double.NaN;
+        result.position.set(refinedPosition);
+        result.orientation.setTo(refinedOrientation);
+        result.litSensorCount = cluster.litCount;
+        result.icoSpherePointCount = icoSpherePointCount;
+        result.valid = true;
+        return result;
+    }
+
+    // Closed form seed into refinedPosition and refinedOrientation, false
+    // leaves them as they were
+    private boolean seedFromClosedForm() {
+        if (!closedForm.estimate(cluster, refinedPosition, refinedOrientation)) {
+            if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_CLOSED_FORM_FAILED, cluster.litCount);
+            return false;
+        }
+        if (traceLevel >= TraceBuffer.STAGE) {
+            tracer.record(TRACE_CLOSED_FORM, refinedPosition.x, refinedPosition.y, refinedPosition.z, closedForm.conditioning);
+        }
+        return true;
+    }
+
+    // Record a finished solve against the metrics and profiling events
+    PoseEstimate solved(PoseEstimate result, long start, Object solveEvent) {
+        final PoserMetrics m = metrics;
+        if (m != null) {
+            m.record(PoserMetrics.SOLVE, System.nanoTime() - start);
+            m.solved(cluster.litCount);
+        }
+        if (solveEvent != null) {
+            events.commit(solveEvent, deviceId, cluster.litCount, result.icoSpherePointCount,
+                    Double.isNaN(result.residualRms) ? 0 : refiner.iterations, result.residualRms);
+        }
+        return result;
+    }
+
+
+    // Get the estimated range from the initial bearing and
+    public void getInitialRangeFromSensorAngles() {
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_RANGE);
+        double maxMeasuredAngle = 0d;
+        double tempEstimatedAngle = 0d;
+        final SensorCluster c = cluster;
+
+        // Widest separation between any two lit sensors
+        if (widestPair.find(c) < 2) {
+            if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_RANGE_TOO_FEW);
+            return;
+        }
+        int heldOuter = widestPair.first;
+        int heldInner = widestPair.second;
+        maxMeasuredAngle = Math.sqrt(widestPair.distanceSq);
+        if (!(maxMeasuredAngle > 0d)) {
+            // Nothing to scale the estimate by
+            if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_RANGE_NO_SPREAD);
+            return;
+        }
+        if (traceLevel >= TraceBuffer.STAGE) {
+            tracer.record(TRACE_BASE_PSN, base1OriginPosition.x, base1OriginPosition.y, base1OriginPosition.z);
+            tracer.record(TRACE_CLUSTER_PSN, clusterOriginPosition.x, clusterOriginPosition.y, clusterOriginPosition.z);
+            tracer.record(TRACE_ESTIMATE_PSN, vectorEstimateFromIcoSphere.x, vectorEstimateFromIcoSphere.y, vectorEstimateFromIcoSphere.z);
+        }
+        estimateOffset.set(vectorEstimateFromIcoSphere);
+        estimateOffset.sub(clusterOriginPosition);
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_WIDEST_PAIR, heldOuter, heldInner, Math.toDegrees(maxMeasuredAngle));
+
+        // Get calculated and the angle from measured data
+        tempEstimatedAngle = angleThreePoints(c, heldOuter, vectorEstimateFromIcoSphere, heldInner);
+        if (traceLevel >= TraceBuffer.STAGE) {
+            tracer.record(TRACE_ANGLE_TO_ESTIMATE, Math.toDegrees(tempEstimatedAngle));
+            tracer.record(TRACE_ANGLE_TO_ACTUAL, Math.toDegrees(maxMeasuredAngle));
+        }
+
+        estimateOffset.scale (tempEstimatedAngle/maxMeasuredAngle);
+        vectorEstimateFromIcoSphere.set(estimateOffset);
+        vectorEstimateFromIcoSphere.add(clusterOriginPosition);
+        if (traceLevel >= TraceBuffer.STAGE) {
+            tempEstimatedAngle = angleThreePoints(c, heldOuter, vectorEstimateFromIcoSphere, heldInner);
+            tracer.record(TRACE_SCALED_PSN, vectorEstimateFromIcoSphere.x, vectorEstimateFromIcoSphere.y, vectorEstimateFromIcoSphere.z);
+            tracer.record(TRACE_ANGLE_TO_ESTIMATE, Math.toDegrees(tempEstimatedAngle));
+        }
+    }
+
+
+    // Refine refinedPosition and refinedOrientation against the measured
+    // angles of the lit sensors, returns false when too few are lit
+    public boolean refinePoseFromSensorAngles() {
+        final PoserMetrics m = metrics;
+        final Object event = events.begin(PoserMetrics.REFINE);
+        if ((m == null) && (event == null)) {
+            return refineFromSeed();
+        }
+        final long start = (m == null) ? 0L : System.nanoTime();
+        final boolean refined = refineFromSeed();
+        if (m != null) {
+            m.record(PoserMetrics.REFINE, System.nanoTime() - start);
+            if (!refined) m.refineFailed();
+        }
+        if (event != null) {
+            events.commit(event, deviceId, cluster.litCount, icoSpherePointCount,
+                    refined ? refiner.iterations : 0, refined ? refiner.getResidualRms() : Double.NaN);
+        }
+        return refined;
+    }
+
+    private boolean refineFromSeed() {
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_REFINE);
+        refiner.clearViews().addView(cluster);
+        if (!(refinedPosition.x > 0d)) {
+            // The estimate is behind the base, start along the mean measured
+            // bearing at the same range instead
+            final double range = refinedPosition.length();
+            meanLitBearing(refinedPosition).scale(range);
+            if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_SEED_MOVED, refinedPosition.x, refinedPosition.y, refinedPosition.z);
+        }
+        if (!refiner.refine(refinedPosition, refinedOrientation)) {
+            if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_REFINE_TOO_FEW, cluster.litCount);
+            return false;
+        }
+        if (traceLevel >= TraceBuffer.STAGE) {
+            tracer.record(TRACE_ITERATIONS, refiner.iterations, refiner.converged ? 1 : 0, Math.toDegrees(refiner.getResidualRms()));
+            tracer.record(TRACE_REFINED_PSN, refinedPosition.x, refinedPosition.y, refinedPosition.z);
+            tracer.record(TRACE_REFINED_ORI, refinedOrientation.x, refinedOrientation.y, refinedOrientation.z, refinedOrientation.w);
+        }
+        return true;
+    }
+
+
+    // Unit mean of the measured directions to the lit sensors, the inverse of
+    // the az/el convention used by getLitSensorAngles
+    Vector3 meanLitBearing(Vector3 out) {
+        final SensorCluster c = cluster;
+        double sumX = 0d;
+        double sumY = 0d;
+        double sumZ = 0d;
+        for (int word = 0; word < c.visible.length; word++) {
+            long lit = c.visible[word];
+            while (lit != 0L) {
+                final int s = (word << 6) + Long.numberOfTrailingZeros(lit);
+                lit &= lit - 1L;
+                if (fastTrig) {
+                    final double cosAz = FastTrig.cos(c.az[s]);
+                    sumX += cosAz * FastTrig.cos(c.el[s]);
+                    sumY += FastTrig.sin(c.az[s]);
+                    sumZ += cosAz * FastTrig.sin(c.el[s]);
+                } else {
+                    final double cosAz = Math.cos(c.az[s]);
+                    sumX += cosAz * Math.cos(c.el[s]);
+                    sumY += Math.sin(c.az[s]);
+                    sumZ += cosAz * Math.sin(c.el[s]);
+                }
+            }
+        }
+        return out.set(sumX, sumY, sumZ).norm();
+    }
+
+
+    // Run through the points of an IcoSphere and see which are covered by the
+    // FoR of each of the sensors which have been lit by the (H/V) laser sweeps.
+    // Take an average of the bearings for those IcoSphere points to get an
+    // initial bearing for the poser.
+    public void getInitialBearingFromIcoSphere() {
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_BEARING);
+        final long[] withinAoI = icoSpherePointWithinAoI;
+        int tempCount = 0;
+        double sumX = 0d;
+        double sumY = 0d;
+        double sumZ = 0d;
+
+        // Start with every IcoSphere point and drop those outside the FoR of
+        // any lit sensor
+        for (int word = 0; word < icoSphereWords; word++) {
+            withinAoI[word] = -1L;
+        }
+        if ((icosphere.size & 63) != 0) {
+            withinAoI[icoSphereWords-1] = (1L << icosphere.size) - 1L;
+        }
+        final long[] visible = cluster.visible;
+        for (int visWord = 0; visWord < visible.length; visWord++) {
+            long lit = visible[visWord];
+            while (lit != 0L) {
+                final long[] mask = sensorIcoSphereMasks[(visWord << 6) + Long.numberOfTrailingZeros(lit)];
+                for (int word = 0; word < icoSphereWords; word++) {
+                    withinAoI[word] &= mask[word];
+                }
+                lit &= lit - 1L;
+            }
+        }
+
+        if (traceLevel >= TraceBuffer.DETAIL) tracer.record(TRACE_ICOSPHERE_LIT);
+        for (int word = 0; word < icoSphereWords; word++) {
+            long bits = withinAoI[word];
+            tempCount += Long.bitCount(bits);
+            while (bits != 0L) {
+                final int spCount = (word << 6) + Long.numberOfTrailingZeros(bits);
+                sumX += icosphere.x[spCount];
+                sumY += icosphere.y[spCount];
+                sumZ += icosphere.z[spCount];
+                if (traceLevel >= TraceBuffer.DETAIL) tracer.record(TRACE_ICOSPHERE_POINT, spCount);
+                bits &= bits - 1L;
+            }
+        }
+        vectorEstimateFromIcoSphere.set(sumX, sumY, sumZ);
+        averageIcoSphereBearing(tempCount);
+    }
+
+
+    // As getInitialBearingFromIcoSphere, but only descends into the
+    // IcoSphere faces which straddle the edge of a lit sensor's FoR
+    public void getInitialBearingHierarchical() {
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_HIERARCHICAL);
+        int tempCount = bearingSearch.search(cluster, sensorFoRCone, vectorEstimateFromIcoSphere);
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_LEVELS, bearingSearch.startLevel, bearingSearch.endLevel, bearingSearch.facesVisited);
+        averageIcoSphereBearing(tempCount);
+    }
+
+
+    // The bearing stage of solve, taken from bearingCache when the lit
+    // pattern is already in it
+    private void getInitialBearing() {
+        final BearingCache cache = bearingCache;
+        final boolean cacheable = (cache != null) && (cluster.visible.length == 1);
+        if (cacheable) {
+            final int count = cache.get(cluster.visible[0], vectorEstimateFromIcoSphere);
+            if (count >= 0) {
+                if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_BEARING_CACHED, count);
+                icoSpherePointCount = count;
+                if (count > 0) setBearingFromMean();
+                return;
+            }
+        }
+        if (bearingSearch == null) {
+            getInitialBearingFromIcoSphere();
+        } else {
+            getInitialBearingHierarchical();
+        }
+        if (cacheable) {
+            cache.put(cluster.visible[0], vectorEstimateFromIcoSphere, icoSpherePointCount);
+        }
+    }
+
+
+    // vectorEstimateFromIcoSphere holds the sum of tempCount points
+    private void averageIcoSphereBearing(int tempCount) {
+        icoSpherePointCount = tempCount;
+        if (tempCount == 0) {
+            return;
+        }
+
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_BEARING_SUM, tempCount, vectorEstimateFromIcoSphere.x, vectorEstimateFromIcoSphere.y, vectorEstimateFromIcoSphere.z);
+        vectorEstimateFromIcoSphere.x /= tempCount;
+        vectorEstimateFromIcoSphere.y /= tempCount;
+        vectorEstimateFromIcoSphere.z /= tempCount;
+        setBearingFromMean();
+    }
+
+    // vectorEstimateFromIcoSphere holds the mean of the points
+    private void setBearingFromMean() {
+        bearingEstimateFromIcoSphere.setFromVector3(vectorEstimateFromIcoSphere);
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_BEARING_MEAN, vectorEstimateFromIcoSphere.x, vectorEstimateFromIcoSphere.y, vectorEstimateFromIcoSphere.z);
+        baseEstPosnFromIcoSphere.set(clusterOriginPosition);
+        baseEstPosnFromIcoSphere.sub(vectorEstimateFromIcoSphere);
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_BASE_ESTIMATE, baseEstPosnFromIcoSphere.x, baseEstPosnFromIcoSphere.y, baseEstPosnFromIcoSphere.z);
+    }
+
+
+    // Create the values from the system, giving which sensors within the cluster
+    // are lit and what the bearing is to that sensor from the base
+    // ALL ANGLES ARE BASED AROUND THE CLUSTER BEING AT ZERO
+    public void getLitSensorAngles() {
+        if (traceLevel >= TraceBuffer.STAGE) tracer.record(TRACE_ANGLES);
+        final long start = (metrics == null) ? 0L : System.nanoTime();
+        final Object event = events.begin(PoserMetrics.ANGLES);
+
+        clusterOriginToBase.set(base1OriginPosition).add(clusterOriginPosition);
+        clusterToBase1Spherical.setFromVector3(clusterOriginToBase);
+        final SensorCluster c = cluster;
+        final double baseX = base1OriginPosition.x;
+        final double baseY = base1OriginPosition.y;
+        final double baseZ = base1OriginPosition.z;
+        int count = 0;
+        c.clearVisible();
+
+        final double[] m = clusterOrientation.toRotationMatrix(clusterRotation);
+
+        for (count = 0; count < c.size; count++) {
+            // Sensor position and normal with the cluster orientation applied
+            final double px = m[0]*c.posX[count] + m[1]*c.posY[count] + m[2]*c.posZ[count];
+            final double py = m[3]*c.posX[count] + m[4]*c.posY[count] + m[5]*c.posZ[count];
+            final double pz = m[6]*c.posX[count] + m[7]*c.posY[count] + m[8]*c.posZ[count];
+            final double nx = m[0]*c.normX[count] + m[1]*c.normY[count] + m[2]*c.normZ[count];
+            final double ny = m[3]*c.normX[count] + m[4]*c.normY[count] + m[5]*c.normZ[count];
+            final double nz = m[6]*c.normX[count] + m[7]*c.normY[count] + m[8]*c.normZ[count];
+
+            // Get the Spherical Co-ords for the sensors
+            final double vx = baseX + px;
+            final double vy = baseY + py;
+            final double vz = baseZ + pz;
+            final double range = Math.sqrt((vx*vx)+(vy*vy)+(vz*vz));
+            c.range[count] = range;
+            if (fastTrig) {
+                c.el[count] = FastTrig.atan(vz/vx);
+                c.az[count] = FastTrig.asin(vy/range);
+            } else {
+                c.el[count] = Math.atan(vz/vx);
+                c.az[count] = Math.asin(vy/range);
+            }
+
+            // work out the angle to the base from each sensor normal
+            final double toBaseX = baseX - px;
+            final double toBaseY = baseY - py;
+            final double toBaseZ = baseZ - pz;
+            final double dot = (nx*toBaseX)+(ny*toBaseY)+(nz*toBaseZ);
+            final double toBaseSq = (toBaseX*toBaseX)+(toBaseY*toBaseY)+(toBaseZ*toBaseZ);
+            c.cosAoI[count] = dot / Math.sqrt(toBaseSq);
+            if (sensorVisibleCone.within(dot, toBaseSq)) {
+                c.visible[count >>> 6] |= 1L << count;
+            }
+        }
+        c.updateLitCount();
+        if (metrics != null) metrics.record(PoserMetrics.ANGLES, System.nanoTime() - start);
+        if (event != null) events.commit(event, deviceId, c.litCount, 0, 0, Double.NaN);
+
+        if (traceLevel < TraceBuffer.STAGE) return;
+
+        // Run through the cluster and print the results
+        tracer.record(TRACE_BASE1_POSN, base1OriginPosition.x, base1OriginPosition.y, base1OriginPosition.z);
+        tracer.record(TRACE_CLUSTER1_POSN, clusterOriginPosition.x, clusterOriginPosition.y, clusterOriginPosition.z);
+        tracer.record(TRACE_CLUSTER_BEARING, Math.toDegrees(clusterToBase1Spherical.az), Math.toDegrees(clusterToBase1Spherical.el), clusterToBase1Spherical.r);
+        if (traceLevel < TraceBuffer.DETAIL) return;
+        tracer.record(TRACE_SENSOR_COLUMNS);
+        for (count = 0; count < c.size; count++) {
+            if(c.isVisible(count)){
+                tracer.record(TRACE_SENSOR, count);
+                tracer.record(TRACE_SENSOR_POSITION,
+                        baseX + m[0]*c.posX[count] + m[1]*c.posY[count] + m[2]*c.posZ[count],
+                        baseY + m[3]*c.posX[count] + m[4]*c.posY[count] + m[5]*c.posZ[count],
+                        baseZ + m[6]*c.posX[count] + m[7]*c.posY[count] + m[8]*c.posZ[count]);
+                tracer.record(TRACE_SENSOR_ANGLES, Math.toDegrees(c.az[count]), Math.toDegrees(c.el[count]), c.range[count]);
+                // Relative power falls off roughly linearly with AoI and range
+                final double aoi = Math.toDegrees(Math.acos(c.cosAoI[count]));
+                final double power = Math.max(0d, 1d - aoi*relPowerRatioVsAoI) * Math.max(0d, 1d - c.range[count]*relPowerRatioVsDist);
+                tracer.record(TRACE_SENSOR_AOI, aoi, power);
+            }
+        }
+        tracer.record(TRACE_SENSORS_END);
+    }
+
+
+    public static double angleThreePoints(Vector3 Start, Vector3 Centre, Vector3 End) {
+        double V1x = Start.x-Centre.x; double V1y = Start.y-Centre.y; double V1z = Start.z-Centre.z;
+        double V2x = End.x-Centre.x; double V2y = End.y-Centre.y; double V2z = End.z-Centre.z;
+        double V1mag = Math.sqrt(V1x*V1x+V1y*V1y+V1z*V1z);
+        double V2mag = Math.sqrt(V2x*V2x+V2y*V2y+V2z*V2z);
+        double V1Normx = V1x/V1mag; double V1Normy = V1y/V1mag; double V1Normz = V1z/V1mag;
+        double V2Normx = V2x/V2mag; double V2Normy = V2y/V2mag; double V2Normz = V2z/V2mag;
+        double Vdot = V1Normx*V2Normx+V1Normy*V2Normy+V1Normz*V2Normz;
+        double AngAB = Math.acos(Vdot);
+        return AngAB;
+    }
+
+
+    // Angle at the estimate between two sensors of the cluster, in the
+    // poser's trig mode
+    double angleThreePoints(SensorCluster c, int start, Vector3 centre, int end) {
+        final double cos = cosThreePoints(c.posX[start], c.posY[start], c.posZ[start],
+                centre.x, centre.y, centre.z,
+                c.posX[end], c.posY[end], c.posZ[end]);
+        return fastTrig ? FastTrig.acos(cos) : Math.acos(cos);
+    }
+
+    public static double angleThreePoints(double startX, double startY, double startZ,
+            double centreX, double centreY, double centreZ,
+            double endX, double endY, double endZ) {
+        return Math.acos(cosThreePoints(startX, startY, startZ, centreX, centreY, centreZ, endX, endY, endZ));
+    }
+
+    static double cosThreePoints(double startX, double startY, double startZ,
+            double centreX, double centreY, double centreZ,
+            double endX, double endY, double endZ) {
+        double V1x = startX-centreX; double V1y = startY-centreY; double V1z = startZ-centreZ;
+        double V2x = endX-centreX; double V2y = endY-centreY; double V2z = endZ-centreZ;
+        double V1mag = Math.sqrt(V1x*V1x+V1y*V1y+V1z*V1z);
+        double V2mag = Math.sqrt(V2x*V2x+V2y*V2y+V2z*V2z);
+        return (V1x*V2x+V1y*V2y+V1z*V2z)/(V1mag*V2mag);
+    }
+}
@@ -0,0 +1,389 @@
+package chartadvancedscatter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless batch mode, re-solves every frame of one or more capture files
+// without starting JavaFX:
+//
+//   java -cp <classes> chartadvancedscatter.PoserCli [options] capture...
+//     --threads N      worker threads, default one per processor
+//     --chunk N        frames per chunk of work, default 4096
+//     --csv FILE       write the poses as CSV
+//     --bin FILE       write the poses as binary records
+//     --verify         count frames whose pose differs from the recorded one
+//
+// The captures are split into chunks of frames which the workers claim in
+// order, each worker replaying through its own reader and Poser so the
+// solves share nothing. Frames are solved cold, every one independently of
+// the last. Finished chunks are written out in capture order by the main
+// thread, at most a few chunks per worker are in flight so memory stays
+// flat however long the captures are.
+//
+// A binary output record is 104 bytes, little endian: int file index, int
+// device, long frame index within the file, double frame time, double
+// position x, y, z, double orientation x, y, z, w, double residual RMS,
+// int lit sensor count, int IcoSphere point count, int valid, int zero.
+public class PoserCli {
+    private static final String USAGE = "usage: PoserCli [--threads N] [--chunk N] [--csv FILE | --bin FILE] [--verify] capture...";
+    private static final int CHUNKS_PER_WORKER = 4; // In flight, solved or being solved but not yet written
+    private static final int BINARY_RECORD = 104;
+    private static final int POSE_VALUES = 8; // Position, orientation and residual RMS
+
+    // Options
+    public int threads = Runtime.getRuntime().availableProcessors();
+    public int chunkFrames = 4096;
+    public File csvFile;
+    public File binaryFile;
+    public boolean verify;
+    public final ArrayList<File> captures = new ArrayList<File>();
+
+    // Chunks, in capture order
+    private int[] chunkFile;
+    private long[] chunkFirst;
+    private int[] chunkCount;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private Semaphore inFlight;
+    private Chunk[] slots;
+    private volatile Throwable failure;
+
+    // Output
+    private BufferedWriter csv;
+    private FileOutputStream binaryStream;
+    private ByteBuffer binary;
+
+    public static void main(String[] args) {
+        final PoserCli cli = new PoserCli();
+        try {
+            cli.parse(args);
+        } catch (IllegalArgumentException bad) {
+            System.err.println(bad.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            cli.run(System.out);
+        } catch (Exception failed) {
+            System.err.println("PoserCli: " + failed);
+            System.exit(1);
+        }
+    }
+
+    public PoserCli parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.equals("--threads")) {
+                threads = intOption(args, ++i, arg);
+            } else if (arg.equals("--chunk")) {
+                chunkFrames = intOption(args, ++i, arg);
+            } else if (arg.equals("--csv")) {
+                csvFile = new File(option(args, ++i, arg));
+            } else if (arg.equals("--bin")) {
+                binaryFile = new File(option(args, ++i, arg));
+            } else if (arg.equals("--verify")) {
+                verify = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            } else {
+                captures.add(new File(arg));
+            }
+        }
+        if (captures.isEmpty()) {
+            throw new IllegalArgumentException("No capture files given");
+        }
+        if ((csvFile != null) && (binaryFile != null)) {
+            throw new IllegalArgumentException("Only one of --csv and --bin can be given");
+        }
+        return this;
+    }
+
+    private static String option(String[] args, int index, String name) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(name + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static int intOption(String[] args, int index, String name) {
+        final int value;
+        try {
+            value = Integer.parseInt(option(args, index, name));
+        } catch (NumberFormatException notNumber) {
+            throw new IllegalArgumentException(name + " needs a whole number");
+        }
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1");
+        }
+        return value;
+    }
+
+    // Solve every frame of the captures and print a summary to report
+    public void run(PrintStream report) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        splitChunks();
+        openOutput();
+
+        slots = new Chunk[threads * CHUNKS_PER_WORKER];
+        for (int slot = 0; slot < slots.length; slot++) {
+            slots[slot] = new Chunk(chunkFrames);
+        }
+        inFlight = new Semaphore(slots.length);
+        final Worker[] workers = new Worker[threads];
+        for (int index = 0; index < threads; index++) {
+            workers[index] = new Worker(index);
+            workers[index].thread.start();
+        }
+
+        boolean drained = false;
+        try {
+            for (int chunk = 0; chunk < chunkFile.length; chunk++) {
+                final Chunk done = slots[chunk % slots.length];
+                synchronized (this) {
+                    while ((done.index != chunk) && (failure == null)) {
+                        wait();
+                    }
+                }
+                if (failure != null) break;
+                writeChunk(chunk, done);
+                inFlight.release();
+            }
+            drained = (failure == null);
+        } finally {
+            if (!drained) {
+                // A worker failed, or writing or waiting here threw, so the
+                // workers blocked on a free slot would never get one. Stop
+                // handing out chunks and let them all through.
+                nextChunk.set(chunkFile.length);
+                inFlight.release(slots.length);
+            }
+            for (int index = 0; index < threads; index++) {
+                workers[index].thread.join();
+            }
+            closeOutput();
+        }
+        if (failure != null) {
+            throw new IOException("A worker failed", failure);
+        }
+        final long wall = System.nanoTime() - start;
+        report(report, workers, wall);
+    }
+
+    private void splitChunks() throws IOException {
+        final ArrayList<long[]> chunks = new ArrayList<long[]>();
+        for (int file = 0; file < captures.size(); file++) {
+            final CaptureReader reader = new CaptureReader(captures.get(file));
+            final long frames = reader.getRecordCount();
+            reader.close();
+            for (long first = 0; first < frames; first += chunkFrames) {
+                chunks.add(new long[] { file, first, Math.min(chunkFrames, frames - first) });
+            }
+        }
+        chunkFile = new int[chunks.size()];
+        chunkFirst = new long[chunks.size()];
+        chunkCount = new int[chunks.size()];
+        for (int chunk = 0; chunk < chunks.size(); chunk++) {
+            chunkFile[chunk] = (int) chunks.get(chunk)[0];
+            chunkFirst[chunk] = chunks.get(chunk)[1];
+            chunkCount[chunk] = (int) chunks.get(chunk)[2];
+        }
+    }
+
+    private void report(PrintStream out, Worker[] workers, long wallNanos) {
+        long frames = 0;
+        long invalid = 0;
+        long mismatched = 0;
+        final LatencyHistogram latency = new LatencyHistogram();
+        for (int index = 0; index < workers.length; index++) {
+            final Worker worker = workers[index];
+            frames += worker.frames;
+            invalid += worker.invalid;
+            mismatched += worker.mismatched;
+            latency.add(worker.latency);
+        }
+        final double seconds = wallNanos / 1e9d;
+        out.printf("Solved %d frames from %d captures in %.3f s on %d threads, %.0f frames/s%n",
+                frames, captures.size(), seconds, threads, frames / seconds);
+        out.printf("Frame latency p50 %.1fus p90 %.1fus p99 %.1fus p99.9 %.1fus max %.1fus%n",
+                latency.getValueAtPercentile(0.5d) / 1e3d, latency.getValueAtPercentile(0.9d) / 1e3d,
+                latency.getValueAtPercentile(0.99d) / 1e3d, latency.getValueAtPercentile(0.999d) / 1e3d, latency.getMax() / 1e3d);
+        out.printf("Invalid poses %d%n", invalid);
+        if (verify) {
+            out.printf("Poses differing from the capture %d%n", mismatched);
+        }
+    }
+
+
+    // =================================================================
+    //                            Output
+    // =================================================================
+    private void openOutput() throws IOException {
+        if (csvFile != null) {
+            csv = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csvFile), "US-ASCII"), 1 << 16);
+            csv.write("file,frame,time,device,valid,x,y,z,qx,qy,qz,qw,rms,lit,icoSpherePoints\n");
+        } else if (binaryFile != null) {
+            binaryStream = new FileOutputStream(binaryFile);
+            binary = ByteBuffer.allocateDirect(BINARY_RECORD * chunkFrames).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void writeChunk(int chunk, Chunk done) throws IOException {
+        if (csv != null) {
+            final StringBuilder line = new StringBuilder(256);
+            for (int i = 0; i < done.count; i++) {
+                final int at = i * POSE_VALUES;
+                line.setLength(0);
+                line.append(chunkFile[chunk]).append(',').append(chunkFirst[chunk] + i).append(',')
+                        .append(done.time[i]).append(',').append(done.device[i]).append(',').append(done.valid[i] ? 1 : 0);
+                for (int value = 0; value < POSE_VALUES; value++) {
+                    line.append(',').append(done.pose[at + value]);
+                }
+                line.append(',').append(done.lit[i]).append(',').append(done.icoSpherePoints[i]).append('\n');
+                csv.append(line);
+            }
+        } else if (binary != null) {
+            binary.clear();
+            for (int i = 0; i < done.count; i++) {
+                final int at = i * POSE_VALUES;
+                binary.putInt(chunkFile[chunk]).putInt(done.device[i]).putLong(chunkFirst[chunk] + i).putDouble(done.time[i]);
+                for (int value = 0; value < POSE_VALUES; value++) {
+                    binary.putDouble(done.pose[at + value]);
+                }
+                binary.putInt(done.lit[i]).putInt(done.icoSpherePoints[i]).putInt(done.valid[i] ? 1 : 0).putInt(0);
+            }
+            binary.flip();
+            final FileChannel channel = binaryStream.getChannel();
+            while (binary.hasRemaining()) {
+                channel.write(binary);
+            }
+        }
+    }
+
+    private void closeOutput() throws IOException {
+        if (csv != null) {
+            csv.close();
+        }
+        if (binaryStream != null) {
+            binaryStream.close();
+        }
+    }
+
+
+    // The poses of one chunk, written by a worker and read by the main
+    // thread once index says the chunk is done
+    private static class Chunk {
+        int index = -1; // Guarded by the PoserCli monitor
+        int count;
+        final double[] time;
+        final int[] device;
+        final double[] pose;
+        final int[] lit;
+        final int[] icoSpherePoints;
+        final boolean[] valid;
+
+        Chunk(int frames) {
+            time = new double[frames];
+            device = new int[frames];
+            pose = new double[frames * POSE_VALUES];
+            lit = new int[frames];
+            icoSpherePoints = new int[frames];
+            valid = new boolean[frames];
+        }
+    }
+
+    private class Worker implements Runnable {
+        final Thread thread;
+        final CaptureReader[] readers = new CaptureReader[captures.size()];
+        final Poser[] posers = new Poser[captures.size()];
+        final PoseEstimate result = new PoseEstimate();
+        final PoseEstimate recorded = new PoseEstimate();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        // Written only by this worker, read after it has been joined
+        long frames;
+        long invalid;
+        long mismatched;
+
+        Worker(int index) {
+            thread = new Thread(this, "poser-cli-" + index);
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    inFlight.acquire();
+                    final int chunk = nextChunk.getAndIncrement();
+                    if (chunk >= chunkFile.length) {
+                        inFlight.release();
+                        return;
+                    }
+                    final Chunk slot = slots[chunk % slots.length];
+                    solveChunk(chunk, slot);
+                    synchronized (PoserCli.this) {
+                        slot.index = chunk;
+                        PoserCli.this.notifyAll();
+                    }
+                }
+            } catch (Throwable failed) {
+                synchronized (PoserCli.this) {
+                    if (failure == null) failure = failed;
+                    PoserCli.this.notifyAll();
+                }
+            } finally {
+                for (int file = 0; file < readers.length; file++) {
+                    try {
+                        if (readers[file] != null) readers[file].close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+
+        private void solveChunk(int chunk, Chunk slot) throws IOException {
+            final int file = chunkFile[chunk];
+            if (readers[file] == null) {
+                readers[file] = new CaptureReader(captures.get(file));
+                posers[file] = new Poser(readers[file].newCluster());
+            }
+            final CaptureReader reader = readers[file];
+            final Poser poser = posers[file];
+            slot.count = chunkCount[chunk];
+            for (int i = 0; i < slot.count; i++) {
+                final long frame = chunkFirst[chunk] + i;
+                final long start = System.nanoTime();
+                reader.load(frame, poser.cluster);
+                poser.solve(result);
+                final long elapsed = System.nanoTime() - start;
+
+                frames++;
+                latency.record(elapsed);
+                if (!result.valid) invalid++;
+                if (verify && !CaptureReader.samePose(result, reader.getPose(frame, recorded))) mismatched++;
+
+                final int at = i * POSE_VALUES;
+                slot.time[i] = reader.getTime(frame);
+                slot.device[i] = reader.getDevice(frame);
+                slot.pose[at] = result.position.x;
+                slot.pose[at + 1] = result.position.y;
+                slot.pose[at + 2] = result.position.z;
+                slot.pose[at + 3] = result.orientation.x;
+                slot.pose[at + 4] = result.orientation.y;
+                slot.pose[at + 5] = result.orientation.z;
+                slot.pose[at + 6] = result.orientation.w;
+                slot.pose[at + 7] = result.residualRms;
+                slot.lit[i] = result.litSensorCount;
+                slot.icoSpherePoints[i] = result.icoSpherePointCount;
+                slot.valid[i] = result.valid;
+            }
+        }
+    }
+}
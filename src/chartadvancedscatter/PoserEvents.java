@@ -0,0 +1,54 @@
+package chartadvancedscatter;
+
+// Profiling events for the poser stages. The Java Flight Recorder backend
+// (JfrPoserEvents, built from src-jfr against jdk.jfr) is picked up when it
+// is on the class path, otherwise every stage goes to a backend that records
+// nothing. The events are disabled by default, enable them in a recording
+// (the chartadvancedscatter.Poser* events) to have them written.
+//
+// A stage asks for an event with begin before it runs and commits it with
+// its outcome afterwards. begin returns null unless a recording wants the
+// stage, so a stage that is not being recorded costs a call and a branch
+// and allocates nothing. The backend can be forced off with the
+// chartadvancedscatter.events system property set to none.
+public abstract class PoserEvents {
+    private static final PoserEvents NONE = new PoserEvents() {
+        public String name() {
+            return "none";
+        }
+
+        public Object begin(int stage) {
+            return null;
+        }
+
+        public void commit(Object event, int device, int litSensors, int icoSpherePoints, int iterations, double residualRms) {
+        }
+    };
+    private static final PoserEvents CURRENT = "none".equals(System.getProperty("chartadvancedscatter.events")) ? NONE : loadJfr();
+
+    public abstract String name();
+
+    // Start timing stage (a PoserMetrics stage), null when it is not being
+    // recorded
+    public abstract Object begin(int stage);
+
+    // Finish and write an event from begin
+    public abstract void commit(Object event, int device, int litSensors, int icoSpherePoints, int iterations, double residualRms);
+
+    public static PoserEvents get() {
+        return CURRENT;
+    }
+
+    public static PoserEvents none() {
+        return NONE;
+    }
+
+    private static PoserEvents loadJfr() {
+        try {
+            return (PoserEvents) Class.forName("chartadvancedscatter.JfrPoserEvents").getDeclaredConstructor().newInstance();
+        } catch (Throwable notAvailable) {
+            // Either the class was not built or the JVM has no jdk.jfr
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package chartadvancedscatter;
+
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per stage latencies and outcome counters of one or more Posers. Give a
+// Poser an instance with setMetrics and it records every stage it runs,
+// posers on any number of threads can share one. Everything is lock free,
+// a stage costs a System.nanoTime and a histogram record. Read the numbers
+// with the getters or toString, or have them printed every so often with
+// startDump.
+public class PoserMetrics {
+    public static final int ANGLES = 0; // Visibility and sweep angles, getLitSensorAngles
+    public static final int CLOSED_FORM = 1; // Closed form seed, when the poser has it on
+    public static final int BEARING = 2; // IcoSphere bearing, flat or hierarchical
+    public static final int RANGE = 3;
+    public static final int REFINE = 4;
+    public static final int SOLVE = 5; // End to end
+    public static final int STAGES = 6;
+    private static final String[] STAGE_NAMES = { "angles", "closedForm", "bearing", "range", "refine", "solve" };
+
+    public static final int MAX_LIT_SENSORS = 64; // Solves with more lit sensors are counted here
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGES];
+    private final AtomicLongArray litSensors = new AtomicLongArray(MAX_LIT_SENSORS + 1);
+    private final AtomicLong solves = new AtomicLong();
+    private final AtomicLong tooFewLit = new AtomicLong();
+    private final AtomicLong noBearing = new AtomicLong();
+    private final AtomicLong refineFailures = new AtomicLong();
+    private ScheduledExecutorService dumper;
+
+    public PoserMetrics() {
+        for (int stage = 0; stage < STAGES; stage++) {
+            stages[stage] = new LatencyHistogram();
+        }
+    }
+
+    public void record(int stage, long nanos) {
+        stages[stage].record(nanos);
+    }
+
+    // Record the time since start against stage, returns now so stages can
+    // be timed back to back
+    public long lap(int stage, long start) {
+        final long now = System.nanoTime();
+        stages[stage].record(now - start);
+        return now;
+    }
+
+    // One finished solve and the number of sensors it was given
+    void solved(int litSensorCount) {
+        solves.incrementAndGet();
+        litSensors.incrementAndGet(Math.min(litSensorCount, MAX_LIT_SENSORS));
+    }
+
+    void tooFewLit() {
+        tooFewLit.incrementAndGet();
+    }
+
+    void noBearing() {
+        noBearing.incrementAndGet();
+    }
+
+    void refineFailed() {
+        refineFailures.incrementAndGet();
+    }
+
+
+    // =================================================================
+    //                            Pull API
+    // =================================================================
+    public LatencyHistogram getHistogram(int stage) {
+        return stages[stage];
+    }
+
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    public long getSolveCount() {
+        return solves.get();
+    }
+
+    // Solves given count lit sensors, MAX_LIT_SENSORS counts that many or more
+    public long getSolvesWithLitSensors(int count) {
+        return litSensors.get(Math.min(count, MAX_LIT_SENSORS));
+    }
+
+    public double getMeanLitSensors() {
+        long solved = 0;
+        long lit = 0;
+        for (int count = 0; count <= MAX_LIT_SENSORS; count++) {
+            final long withCount = litSensors.get(count);
+            solved += withCount;
+            lit += withCount * count;
+        }
+        return (solved == 0) ? 0d : (double) lit / solved;
+    }
+
+    // Solves that returned an invalid pose, for either reason
+    public long getFailureCount() {
+        return tooFewLit.get() + noBearing.get();
+    }
+
+    public long getTooFewLitCount() {
+        return tooFewLit.get();
+    }
+
+    // No IcoSphere point was within the FoR of every lit sensor
+    public long getNoBearingCount() {
+        return noBearing.get();
+    }
+
+    // Refinements that did not run, the heuristic pose was kept
+    public long getRefineFailureCount() {
+        return refineFailures.get();
+    }
+
+    public void reset() {
+        for (int stage = 0; stage < STAGES; stage++) {
+            stages[stage].reset();
+        }
+        for (int count = 0; count <= MAX_LIT_SENSORS; count++) {
+            litSensors.set(count, 0L);
+        }
+        solves.set(0L);
+        tooFewLit.set(0L);
+        noBearing.set(0L);
+        refineFailures.set(0L);
+    }
+
+    public String toString() {
+        final StringBuilder out = new StringBuilder(512);
+        out.append(String.format("PoserMetrics: %d solves, %.1f lit sensors mean, %d too few lit, %d no bearing, %d not refined",
+                getSolveCount(), getMeanLitSensors(), getTooFewLitCount(), getNoBearingCount(), getRefineFailureCount()));
+        for (int stage = 0; stage < STAGES; stage++) {
+            out.append(String.format("%n  %-11s%s", STAGE_NAMES[stage], stages[stage]));
+        }
+        return out.toString();
+    }
+
+
+    // =================================================================
+    //                          Periodic dump
+    // =================================================================
+    // Print the metrics to out every period on a daemon thread, replacing
+    // any dump already running
+    public synchronized PoserMetrics startDump(long period, TimeUnit unit, final PrintStream out) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                final Thread thread = new Thread(task, "poser-metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        dumper.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                out.println(PoserMetrics.this);
+            }
+        }, period, period, unit);
+        return this;
+    }
+
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdown();
+            dumper = null;
+        }
+    }
+}
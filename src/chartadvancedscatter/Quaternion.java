@@ -3,6 +3,7 @@ package chartadvancedscatter;
 public class Quaternion {
         // A value to compare to instead of comparing to 0d
         private static double CLOSE_ENOUGH_TO_ZERO = 0.000000000000001;
+        private static final double TWO_PI = 2d * Math.PI;
         
 	public double x;
 	public double y;
@@ -33,15 +34,91 @@ public class Quaternion {
 		return "[" + x + "|" + y + "|" + z + "|" + w + "]";
 	}
 
+	// Rotate v in place, the same result as q * v * q' without building the
+	// intermediate quaternions
 	public Vector3 transform (Vector3 v) {
-                Quaternion temp1 = copy();
-		temp1.invert();
-		temp1.mulLeft(v.x, v.y, v.z, 0d);
-                temp1.mulLeft(this);
-		v.x = temp1.x;
-		v.y = temp1.y;
-		v.z = temp1.z;
-		return v;
+		return transform(v, v);
+	}
+
+	public Vector3 transform (final Vector3 in, Vector3 out) {
+		final double uDotV = (x * in.x) + (y * in.y) + (z * in.z);
+		final double s = (w * w) - ((x * x) + (y * y) + (z * z));
+		final double crossX = y * in.z - z * in.y;
+		final double crossY = z * in.x - x * in.z;
+		final double crossZ = x * in.y - y * in.x;
+		final double twoUDotV = 2d * uDotV;
+		final double twoW = 2d * w;
+		return out.set(s * in.x + twoUDotV * x + twoW * crossX,
+				s * in.y + twoUDotV * y + twoW * crossY,
+				s * in.z + twoUDotV * z + twoW * crossZ);
+	}
+
+	// Rotate in by the inverse of this quaternion, q' * v * q
+	public Vector3 transformInverse (final Vector3 in, Vector3 out) {
+		final double uDotV = (x * in.x) + (y * in.y) + (z * in.z);
+		final double s = (w * w) - ((x * x) + (y * y) + (z * z));
+		final double crossX = y * in.z - z * in.y;
+		final double crossY = z * in.x - x * in.z;
+		final double crossZ = x * in.y - y * in.x;
+		final double twoUDotV = 2d * uDotV;
+		final double twoW = 2d * w;
+		return out.set(s * in.x + twoUDotV * x - twoW * crossX,
+				s * in.y + twoUDotV * y - twoW * crossY,
+				s * in.z + twoUDotV * z - twoW * crossZ);
+	}
+
+	// Fill m (row major 3x3) with the rotation matrix for this quaternion
+	public double[] toRotationMatrix (double[] m) {
+		final double xx = x * x, yy = y * y, zz = z * z, ww = w * w;
+		final double xy = x * y, xz = x * z, yz = y * z;
+		final double wx = w * x, wy = w * y, wz = w * z;
+		m[0] = ww + xx - yy - zz;
+		m[1] = 2d * (xy - wz);
+		m[2] = 2d * (xz + wy);
+		m[3] = 2d * (xy + wz);
+		m[4] = ww - xx + yy - zz;
+		m[5] = 2d * (yz - wx);
+		m[6] = 2d * (xz - wy);
+		m[7] = 2d * (yz + wx);
+		m[8] = ww - xx - yy + zz;
+		return m;
+	}
+
+	// Set from a row major rotation matrix as toRotationMatrix writes it,
+	// m must be orthonormal
+	public Quaternion setFromRotationMatrix (final double[] m) {
+		final double trace = m[0] + m[4] + m[8];
+		if (trace > 0d) {
+			final double s = 0.5d / Math.sqrt(trace + 1d);
+			return setTo((m[7] - m[5]) * s, (m[2] - m[6]) * s, (m[3] - m[1]) * s, 0.25d / s);
+		} else if ((m[0] > m[4]) && (m[0] > m[8])) {
+			final double s = 2d * Math.sqrt(1d + m[0] - m[4] - m[8]);
+			return setTo(0.25d * s, (m[1] + m[3]) / s, (m[2] + m[6]) / s, (m[7] - m[5]) / s);
+		} else if (m[4] > m[8]) {
+			final double s = 2d * Math.sqrt(1d + m[4] - m[0] - m[8]);
+			return setTo((m[1] + m[3]) / s, 0.25d * s, (m[5] + m[7]) / s, (m[2] - m[6]) / s);
+		}
+		final double s = 2d * Math.sqrt(1d + m[8] - m[0] - m[4]);
+		return setTo((m[2] + m[6]) / s, (m[5] + m[7]) / s, 0.25d * s, (m[3] - m[1]) / s);
+	}
+
+	// Rotate count points held as separate x, y, z arrays. The quaternion is
+	// converted to a matrix once so each point costs nine multiplies. The out
+	// arrays may be the in arrays.
+	public void transform (final double[] inX, final double[] inY, final double[] inZ,
+			double[] outX, double[] outY, double[] outZ, final int count) {
+		final double xx = x * x, yy = y * y, zz = z * z, ww = w * w;
+		final double m00 = ww + xx - yy - zz, m01 = 2d * (x * y - w * z), m02 = 2d * (x * z + w * y);
+		final double m10 = 2d * (x * y + w * z), m11 = ww - xx + yy - zz, m12 = 2d * (y * z - w * x);
+		final double m20 = 2d * (x * z - w * y), m21 = 2d * (y * z + w * x), m22 = ww - xx - yy + zz;
+		for (int i = 0; i < count; i++) {
+			final double px = inX[i];
+			final double py = inY[i];
+			final double pz = inZ[i];
+			outX[i] = m00 * px + m01 * py + m02 * pz;
+			outY[i] = m10 * px + m11 * py + m12 * pz;
+			outZ[i] = m20 * px + m21 * py + m22 * pz;
+		}
 	}
 
 	public Quaternion setToIdent () {
@@ -80,7 +157,7 @@ public class Quaternion {
 		double d = Vector3.length(x, y, z);
 		if (d < CLOSE_ENOUGH_TO_ZERO) return setToIdent();
 		d = 1d / d;
-		double l_ang = radians < 0 ? Math.PI - (-radians % Math.PI) : radians % Math.PI;
+		double l_ang = radians < 0 ? TWO_PI - (-radians % TWO_PI) : radians % TWO_PI;
 		double l_sin = (double)Math.sin(l_ang / 2);
 		double l_cos = (double)Math.cos(l_ang / 2);
 		return setTo(d * x * l_sin, d * y * l_sin, d * z * l_sin, l_cos).norm();
@@ -0,0 +1,434 @@
+package chartadvancedscatter;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Robust front end over a Poser for frames where some lit sensors were hit
+// by a reflection or a spurious pulse. Random minimal sets of lit sensors
+// are each turned into a pose by ClosedFormPose, every lit sensor is scored
+// against each pose by the angle between its measured bearing and the one
+// the pose predicts, and the pose agreeing with the most sensors wins. Its
+// inliers alone are then refined, the outliers never reach the refiner.
+//
+// Each time a round improves on the best consensus its inliers are refined
+// together, which usually takes in the sensors a minimal set missed.
+//
+// Hypotheses are drawn in rounds and a round is split between the workers,
+// the caller taking the first share and the rest running on the executor.
+// Hypothesis i always samples from a generator seeded by (seed, i) and ties
+// go to the lowest i, so a frame gives the same pose for any worker count.
+// After each round the number of hypotheses needed for confidence that one
+// was drawn from inliers alone is worked out from the best inlier ratio so
+// far, and sampling stops once that many have been tried, at once when
+// every sensor agrees. Frames with too few lit sensors for a useful
+// consensus, or where no hypothesis finds one, go to the Poser unchanged.
+public class RansacPoser implements PoseSolver {
+    private static final int POLISH_PASSES = 3;
+
+    private static final int TRACE_CONSENSUS = TraceBuffer.define("\n\rConsensus of %d of %d lit sensors after %d hypotheses, residual RMS (%2.6f deg)", "iiid");
+    private static final int TRACE_NO_CONSENSUS = TraceBuffer.define("\n\rNo consensus after %d hypotheses, solving all %d lit sensors", "ii");
+
+    public final Poser poser;
+    private final ExecutorService executor; // Null scores every hypothesis on the caller
+    private final Worker[] workers;
+    private final Future<?>[] running;
+
+    // Tuning
+    public long seed = 0x5eed5eedL;
+    public int sampleSize = ClosedFormPose.MIN_SENSORS;
+    public int hypothesesPerRound = 8;
+    public int maxHypotheses = 256;
+    public double confidence = 0.99d; // That some hypothesis came from inliers only
+    public double inlierAngle = 2e-3d; // Radians between measured and predicted bearings
+    public int minInliers = 8;
+
+    // Outcome of the last frame
+    public int hypotheses;
+    public int inlierCount;
+    public final long[] inlierMask;
+    public boolean usedConsensus;
+
+    // Per frame, shared read only by the workers during a round
+    private final int[] lit;
+    private final double[] bearingX;
+    private final double[] bearingY;
+    private final double[] bearingZ;
+    private final long[] frameMask; // Lit sensors as loaded, put back after solving
+    private int litCount;
+    private int roundStart;
+    private int roundEnd;
+    private double cosInlier;
+
+    // Last refined consensus of the frame, rms NaN until there is one
+    private int consensusInliers;
+    private double consensusRms;
+    private final long[] consensusMask;
+    private final Vector3 consensusPosition = new Vector3();
+    private final Quaternion consensusOrientation = new Quaternion();
+
+    // Score every hypothesis on the calling thread
+    public RansacPoser(Poser poser) {
+        this(poser, null, 1);
+    }
+
+    // Split each round between workerCount workers, all but the first on
+    // executor, which should have workerCount - 1 threads free
+    public RansacPoser(Poser poser, ExecutorService executor, int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        if ((executor == null) && (workerCount > 1)) {
+            throw new IllegalArgumentException("More than one worker needs an executor");
+        }
+        this.poser = poser;
+        this.executor = executor;
+        final SensorCluster c = poser.cluster;
+        lit = new int[c.size];
+        bearingX = new double[c.size];
+        bearingY = new double[c.size];
+        bearingZ = new double[c.size];
+        frameMask = new long[c.visible.length];
+        inlierMask = new long[c.visible.length];
+        consensusMask = new long[c.visible.length];
+        workers = new Worker[workerCount];
+        running = new Future<?>[workerCount];
+        for (int index = 0; index < workerCount; index++) {
+            workers[index] = new Worker(index);
+        }
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    // Recorded as one solve of the Poser, consensus or not, so its metrics
+    // and profiling events cover the whole frame
+    public PoseEstimate solve(PoseEstimate result) {
+        final Object solveEvent = poser.beginSolve();
+        final long start = (poser.metrics == null) ? 0L : System.nanoTime();
+        return poser.solved(solveFrame(result, start), start, solveEvent);
+    }
+
+    private PoseEstimate solveFrame(PoseEstimate result, long start) {
+        final SensorCluster c = poser.cluster;
+        hypotheses = 0;
+        inlierCount = c.litCount;
+        usedConsensus = false;
+        System.arraycopy(c.visible, 0, inlierMask, 0, c.visible.length);
+        if (c.litCount < Math.max(minInliers, sampleSize + 1)) {
+            return poser.solveStages(result, start);
+        }
+        loadBearings(c);
+
+        // No IcoSphere points go into a consensus, the refinements made
+        // while polishing it are reported with none
+        poser.icoSpherePointCount = 0;
+
+        // The outliers are hidden from the refiner while the consensus is
+        // polished and put back after
+        final boolean found;
+        System.arraycopy(c.visible, 0, frameMask, 0, frameMask.length);
+        try {
+            found = findConsensus(c);
+        } finally {
+            setVisible(c, frameMask);
+        }
+        if (!found) {
+            if (poser.traceLevel >= TraceBuffer.STAGE) poser.tracer.record(TRACE_NO_CONSENSUS, hypotheses, c.litCount);
+            return poser.solveStages(result, (poser.metrics == null) ? 0L : System.nanoTime());
+        }
+        if (poser.traceLevel >= TraceBuffer.STAGE) {
+            poser.tracer.record(TRACE_CONSENSUS, consensusInliers, c.litCount, hypotheses, Math.toDegrees(consensusRms));
+        }
+        usedConsensus = true;
+        inlierCount = consensusInliers;
+        System.arraycopy(consensusMask, 0, inlierMask, 0, inlierMask.length);
+        result.position.set(consensusPosition);
+        result.orientation.setTo(consensusOrientation);
+        result.litSensorCount = c.litCount;
+        result.icoSpherePointCount = poser.icoSpherePointCount;
+        result.residualRms = consensusRms;
+        result.valid = true;
+        return result;
+    }
+
+    // Rounds until enough hypotheses have been tried for the best inlier
+    // ratio so far, returns whether a consensus was refined
+    private boolean findConsensus(SensorCluster c) {
+        final Worker best = workers[0];
+        consensusInliers = 0;
+        consensusRms = Double.NaN;
+        for (int index = 0; index < workers.length; index++) {
+            workers[index].resetBest();
+        }
+        int needed = maxHypotheses;
+        int polished = 0;
+        while (hypotheses < needed) {
+            roundStart = hypotheses;
+            roundEnd = Math.min(hypotheses + hypothesesPerRound, maxHypotheses);
+            runRound();
+            for (int index = 1; index < workers.length; index++) {
+                best.mergeBest(workers[index]);
+            }
+            hypotheses = roundEnd;
+            if (best.bestInliers > polished) {
+                polish(c, best);
+                polished = best.bestInliers;
+            }
+            if (best.bestInliers == litCount) {
+                break;
+            }
+            needed = hypothesesNeeded(best.bestInliers);
+        }
+        return !Double.isNaN(consensusRms);
+    }
+
+    // A minimal set rarely fits the rest closely with noisy angles, so
+    // refine the best hypothesis on its inliers alone and go on refining
+    // while that takes in more of them. The refined pose becomes the
+    // consensus when it keeps at least minInliers and no earlier one scored
+    // more. A fit that drops some of its hypothesis's inliers is still kept
+    // then, since it was made without the outliers.
+    private void polish(SensorCluster c, Worker best) {
+        for (int pass = 0; pass < POLISH_PASSES; pass++) {
+            if (best.bestInliers < minInliers) {
+                return;
+            }
+            setVisible(c, best.bestMask);
+            poser.refinedPosition.set(best.bestPosition);
+            poser.refinedOrientation.setTo(best.bestOrientation);
+            if (!poser.refinePoseFromSensorAngles()) {
+                return;
+            }
+            final int inliers = best.score(poser.refinedPosition, poser.refinedOrientation, best.mask);
+            if ((inliers >= minInliers) && (inliers >= consensusInliers)) {
+                consensusInliers = inliers;
+                consensusRms = poser.refiner.getResidualRms();
+                System.arraycopy(best.mask, 0, consensusMask, 0, consensusMask.length);
+                consensusPosition.set(poser.refinedPosition);
+                consensusOrientation.setTo(poser.refinedOrientation);
+            }
+            if (inliers < best.bestInliers) {
+                return;
+            }
+            final boolean settled = sameMask(best.mask, best.bestMask);
+            best.bestInliers = inliers;
+            System.arraycopy(best.mask, 0, best.bestMask, 0, best.mask.length);
+            best.bestPosition.set(poser.refinedPosition);
+            best.bestOrientation.setTo(poser.refinedOrientation);
+            if (settled) {
+                return;
+            }
+        }
+    }
+
+    private static void setVisible(SensorCluster c, long[] mask) {
+        System.arraycopy(mask, 0, c.visible, 0, c.visible.length);
+        c.updateLitCount();
+    }
+
+    // Measured unit bearings of the lit sensors, u = (cos az cos el,
+    // sin az, cos az sin el), in the poser's trig mode
+    private void loadBearings(SensorCluster c) {
+        final boolean fast = poser.fastTrig;
+        litCount = 0;
+        for (int word = 0; word < c.visible.length; word++) {
+            long mask = c.visible[word];
+            while (mask != 0L) {
+                final int s = (word << 6) + Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1L;
+                if (fast) {
+                    final double cosAz = FastTrig.cos(c.az[s]);
+                    bearingX[s] = cosAz * FastTrig.cos(c.el[s]);
+                    bearingY[s] = FastTrig.sin(c.az[s]);
+                    bearingZ[s] = cosAz * FastTrig.sin(c.el[s]);
+                } else {
+                    final double cosAz = Math.cos(c.az[s]);
+                    bearingX[s] = cosAz * Math.cos(c.el[s]);
+                    bearingY[s] = Math.sin(c.az[s]);
+                    bearingZ[s] = cosAz * Math.sin(c.el[s]);
+                }
+                lit[litCount++] = s;
+            }
+        }
+        cosInlier = Math.cos(inlierAngle);
+    }
+
+    // Hypotheses for a confidence that one of them sampled only inliers
+    private int hypothesesNeeded(int inliers) {
+        final double allInliers = Math.pow((double) inliers / litCount, sampleSize);
+        if (allInliers <= 0d) {
+            return maxHypotheses;
+        }
+        if (allInliers >= 1d) {
+            return 0;
+        }
+        final double needed = Math.ceil(Math.log(1d - confidence) / Math.log(1d - allInliers));
+        return (int) Math.min(maxHypotheses, needed);
+    }
+
+    private static boolean sameMask(long[] a, long[] b) {
+        for (int word = 0; word < a.length; word++) {
+            if (a[word] != b[word]) return false;
+        }
+        return true;
+    }
+
+    // Run the current round on every worker, the first on the caller
+    private void runRound() {
+        if (executor == null) {
+            workers[0].run();
+            return;
+        }
+        for (int index = 1; index < workers.length; index++) {
+            running[index] = executor.submit(workers[index]);
+        }
+        boolean callerDone = false;
+        try {
+            workers[0].run();
+            callerDone = true;
+        } finally {
+            // Wait for every worker even when the caller's share threw, so
+            // none is left scoring into the next round
+            final Throwable failure = awaitAll();
+            if (callerDone && (failure != null)) {
+                throw new IllegalStateException("A RANSAC worker failed", failure);
+            }
+        }
+    }
+
+    // Wait for every submitted worker and return the first failure, if any
+    private Throwable awaitAll() {
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (int index = 1; index < workers.length; index++) {
+            while (running[index] != null) {
+                try {
+                    running[index].get();
+                    running[index] = null;
+                } catch (InterruptedException wakeUp) {
+                    interrupted = true;
+                } catch (ExecutionException failed) {
+                    running[index] = null;
+                    if (failure == null) failure = failed.getCause();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failure;
+    }
+
+    // Draws and scores the hypotheses i of a round with i % workers equal to
+    // its index, keeping the best it has seen this frame
+    private class Worker implements Runnable {
+        final int index;
+        final ClosedFormPose closedForm = new ClosedFormPose();
+        final int[] pool;
+        final long[] sampleMask;
+        final long[] mask;
+        final double[] rotation = new double[9];
+        final Vector3 position = new Vector3();
+        final Quaternion orientation = new Quaternion();
+
+        // Best this frame, lowest hypothesis index on a tie
+        int bestInliers;
+        int bestHypothesis;
+        final long[] bestMask;
+        final Vector3 bestPosition = new Vector3();
+        final Quaternion bestOrientation = new Quaternion();
+
+        Worker(int index) {
+            this.index = index;
+            final SensorCluster c = poser.cluster;
+            pool = new int[c.size];
+            sampleMask = new long[c.visible.length];
+            mask = new long[c.visible.length];
+            bestMask = new long[c.visible.length];
+        }
+
+        void resetBest() {
+            bestInliers = 0;
+            bestHypothesis = Integer.MAX_VALUE;
+        }
+
+        void mergeBest(Worker other) {
+            if ((other.bestInliers > bestInliers)
+                    || ((other.bestInliers == bestInliers) && (other.bestHypothesis < bestHypothesis))) {
+                bestInliers = other.bestInliers;
+                bestHypothesis = other.bestHypothesis;
+                System.arraycopy(other.bestMask, 0, bestMask, 0, bestMask.length);
+                bestPosition.set(other.bestPosition);
+                bestOrientation.setTo(other.bestOrientation);
+            }
+        }
+
+        public void run() {
+            final SensorCluster c = poser.cluster;
+            closedForm.fastTrig = poser.fastTrig;
+            final int first = roundStart + (index - (roundStart % workers.length) + workers.length) % workers.length;
+            for (int hypothesis = first; hypothesis < roundEnd; hypothesis += workers.length) {
+                sample(hypothesis);
+                if (!closedForm.estimate(c, sampleMask, position, orientation)) {
+                    continue;
+                }
+                final int inliers = score(position, orientation, mask);
+                if ((inliers > bestInliers) || ((inliers == bestInliers) && (hypothesis < bestHypothesis))) {
+                    bestInliers = inliers;
+                    bestHypothesis = hypothesis;
+                    System.arraycopy(mask, 0, bestMask, 0, mask.length);
+                    bestPosition.set(position);
+                    bestOrientation.setTo(orientation);
+                }
+            }
+        }
+
+        // sampleSize distinct lit sensors into sampleMask by a partial
+        // Fisher-Yates shuffle, driven by a SplitMix64 stream for hypothesis
+        private void sample(int hypothesis) {
+            System.arraycopy(lit, 0, pool, 0, litCount);
+            for (int word = 0; word < sampleMask.length; word++) {
+                sampleMask[word] = 0L;
+            }
+            long state = seed + hypothesis * 0x9e3779b97f4a7c15L;
+            for (int drawn = 0; drawn < sampleSize; drawn++) {
+                state += 0x9e3779b97f4a7c15L;
+                long z = state;
+                z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+                z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+                z ^= z >>> 31;
+                final int pick = drawn + (int) (((z >>> 33) * (litCount - drawn)) >>> 31);
+                final int s = pool[pick];
+                pool[pick] = pool[drawn];
+                pool[drawn] = s;
+                sampleMask[s >>> 6] |= 1L << s;
+            }
+        }
+
+        // Lit sensors whose measured bearing is within inlierAngle of the
+        // one predicted by the pose, set in out, returns how many
+        int score(Vector3 position, Quaternion orientation, long[] out) {
+            final SensorCluster c = poser.cluster;
+            final double[] m = orientation.toRotationMatrix(rotation);
+            for (int word = 0; word < out.length; word++) {
+                out[word] = 0L;
+            }
+            int inliers = 0;
+            for (int i = 0; i < litCount; i++) {
+                final int s = lit[i];
+                final double px = c.posX[s], py = c.posY[s], pz = c.posZ[s];
+                final double vx = position.x + m[0]*px + m[1]*py + m[2]*pz;
+                final double vy = position.y + m[3]*px + m[4]*py + m[5]*pz;
+                final double vz = position.z + m[6]*px + m[7]*py + m[8]*pz;
+                final double dot = (vx * bearingX[s]) + (vy * bearingY[s]) + (vz * bearingZ[s]);
+                if ((dot > 0d) && (dot * dot >= cosInlier * cosInlier * ((vx*vx) + (vy*vy) + (vz*vz)))) {
+                    out[s >>> 6] |= 1L << s;
+                    inliers++;
+                }
+            }
+            return inliers;
+        }
+    }
+}
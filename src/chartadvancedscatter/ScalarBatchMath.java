@@ -0,0 +1,66 @@
+package chartadvancedscatter;
+
+// Plain loop backend for BatchMath, the reference the SIMD backend is
+// checked against
+final class ScalarBatchMath extends BatchMath {
+    private static double CLOSE_ENOUGH_TO_ZERO = 0.000000000000001;
+
+    public String name() {
+        return "scalar";
+    }
+
+    public void dot(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ, double[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = (aX[i] * bX[i]) + (aY[i] * bY[i]) + (aZ[i] * bZ[i]);
+        }
+    }
+
+    public void cross(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ,
+            double[] outX, double[] outY, double[] outZ, int count) {
+        for (int i = 0; i < count; i++) {
+            final double x = aY[i] * bZ[i] - aZ[i] * bY[i];
+            final double y = aZ[i] * bX[i] - aX[i] * bZ[i];
+            final double z = aX[i] * bY[i] - aY[i] * bX[i];
+            outX[i] = x;
+            outY[i] = y;
+            outZ[i] = z;
+        }
+    }
+
+    public void norm(double[] x, double[] y, double[] z, int count) {
+        for (int i = 0; i < count; i++) {
+            final double lengthSq = (x[i] * x[i]) + (y[i] * y[i]) + (z[i] * z[i]);
+            if (lengthSq > CLOSE_ENOUGH_TO_ZERO) {
+                final double scale = 1d / Math.sqrt(lengthSq);
+                x[i] *= scale;
+                y[i] *= scale;
+                z[i] *= scale;
+            }
+        }
+    }
+
+    public void angle(double[] aX, double[] aY, double[] aZ,
+            double[] bX, double[] bY, double[] bZ, double[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            final double dot = (aX[i] * bX[i]) + (aY[i] * bY[i]) + (aZ[i] * bZ[i]);
+            final double lengthSqA = (aX[i] * aX[i]) + (aY[i] * aY[i]) + (aZ[i] * aZ[i]);
+            final double lengthSqB = (bX[i] * bX[i]) + (bY[i] * bY[i]) + (bZ[i] * bZ[i]);
+            out[i] = Math.acos(Quaternion.clamp(dot / Math.sqrt(lengthSqA * lengthSqB), -1d, 1d));
+        }
+    }
+
+    public void coneMask(double dirX, double dirY, double dirZ,
+            double[] vX, double[] vY, double[] vZ, Cone cone, long[] mask, int count) {
+        clearMask(mask, count);
+        final double dirLengthSq = (dirX * dirX) + (dirY * dirY) + (dirZ * dirZ);
+        for (int i = 0; i < count; i++) {
+            final double dot = (dirX * vX[i]) + (dirY * vY[i]) + (dirZ * vZ[i]);
+            final double lengthSq = (vX[i] * vX[i]) + (vY[i] * vY[i]) + (vZ[i] * vZ[i]);
+            if (cone.within(dot, dirLengthSq * lengthSq)) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+}
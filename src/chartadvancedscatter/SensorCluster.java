@@ -0,0 +1,122 @@
+package chartadvancedscatter;
+
+// Structure of arrays model of one sensor cluster. The geometry (positions
+// and unit normals) is fixed when the device is loaded, the per frame values
+// (angles, AoI, power and visibility) are overwritten in place every frame so
+// nothing is allocated once the cluster has been built.
+public class SensorCluster {
+    public final int size;
+
+    // Sensor geometry wrt the cluster origin
+    public final double[] posX; // Meters
+    public final double[] posY;
+    public final double[] posZ;
+    public final double[] normX; // Unit normals
+    public final double[] normY;
+    public final double[] normZ;
+
+    // Base to sensor relative info
+    public final double[] az; // Radians
+    public final double[] el; // Radians
+    public final double[] range; // Meters
+    public final double[] cosAoI; // Cosine of the AoI, acos only when reporting
+    public final long[] visible; // Bit per sensor
+    public int litCount;
+
+    public SensorCluster (int size) {
+        this.size = size;
+        posX = new double[size];
+        posY = new double[size];
+        posZ = new double[size];
+        normX = new double[size];
+        normY = new double[size];
+        normZ = new double[size];
+        az = new double[size];
+        el = new double[size];
+        range = new double[size];
+        cosAoI = new double[size];
+        visible = new long[(size + 63) >>> 6];
+    }
+
+    // Build a cluster from device tables, the points and normals are in the
+    // device table axis order (y, z, x)
+    public SensorCluster (double[][] devicePoints, double[][] deviceNormals) {
+        this(devicePoints.length);
+        if (devicePoints.length != deviceNormals.length) {
+            throw new IllegalArgumentException("devicePoints and deviceNormals differ in length");
+        }
+        for (int count = 0; count < size; count++) {
+            posX[count] = devicePoints[count][2];
+            posY[count] = devicePoints[count][0];
+            posZ[count] = devicePoints[count][1];
+
+            double nx = deviceNormals[count][2];
+            double ny = deviceNormals[count][0];
+            double nz = deviceNormals[count][1];
+            double length = Vector3.length(nx, ny, nz);
+            normX[count] = nx / length;
+            normY[count] = ny / length;
+            normZ[count] = nz / length;
+        }
+    }
+
+    // A second set of per frame values over the geometry of another cluster,
+    // so one device can be seen by several bases without copying it
+    public SensorCluster (SensorCluster geometry) {
+        size = geometry.size;
+        posX = geometry.posX;
+        posY = geometry.posY;
+        posZ = geometry.posZ;
+        normX = geometry.normX;
+        normY = geometry.normY;
+        normZ = geometry.normZ;
+        az = new double[size];
+        el = new double[size];
+        range = new double[size];
+        cosAoI = new double[size];
+        visible = new long[(size + 63) >>> 6];
+    }
+
+    public boolean isVisible (int sensor) {
+        return (visible[sensor >>> 6] & (1L << sensor)) != 0L;
+    }
+
+    public SensorCluster setVisible (int sensor, boolean isVisible) {
+        if (isVisible) {
+            visible[sensor >>> 6] |= 1L << sensor;
+        } else {
+            visible[sensor >>> 6] &= ~(1L << sensor);
+        }
+        return this;
+    }
+
+    public SensorCluster clearVisible () {
+        for (int word = 0; word < visible.length; word++) {
+            visible[word] = 0L;
+        }
+        litCount = 0;
+        return this;
+    }
+
+    // Recount the lit sensors after the visible bits have been written
+    public int updateLitCount () {
+        int count = 0;
+        for (int word = 0; word < visible.length; word++) {
+            count += Long.bitCount(visible[word]);
+        }
+        litCount = count;
+        return count;
+    }
+
+    public Vector3 getPosition (int sensor, Vector3 out) {
+        return out.set(posX[sensor], posY[sensor], posZ[sensor]);
+    }
+
+    public Vector3 getNormal (int sensor, Vector3 out) {
+        return out.set(normX[sensor], normY[sensor], normZ[sensor]);
+    }
+
+    public Spherical3 getSpherical (int sensor, Spherical3 out) {
+        return out.setFromRads(az[sensor], el[sensor], range[sensor]);
+    }
+}
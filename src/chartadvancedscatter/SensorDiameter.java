@@ -0,0 +1,126 @@
+package chartadvancedscatter;
+
+// Finds the pair of lit sensors with the widest (az, el) separation. The lit
+// sensors are sorted, wrapped in a convex hull (monotone chain) and the hull
+// diameter is found with rotating calipers, so the cost is O(n log n) in the
+// lit sensor count rather than O(n^2). Distances are compared squared. All
+// buffers are sized for the cluster when the finder is built.
+public class SensorDiameter {
+    private final int[] order;
+    private final int[] hull;
+
+    public int first;
+    public int second;
+    public double distanceSq;
+
+    public SensorDiameter (int clusterSize) {
+        order = new int[clusterSize];
+        hull = new int[2 * clusterSize];
+    }
+
+    // Returns the number of lit sensors considered, first and second are
+    // only meaningful when that is two or more
+    public int find (final SensorCluster c) {
+        final double[] az = c.az;
+        final double[] el = c.el;
+        int count = 0;
+        for (int word = 0; word < c.visible.length; word++) {
+            long lit = c.visible[word];
+            while (lit != 0L) {
+                order[count++] = (word << 6) + Long.numberOfTrailingZeros(lit);
+                lit &= lit - 1L;
+            }
+        }
+        first = -1;
+        second = -1;
+        distanceSq = 0d;
+        if (count < 2) {
+            return count;
+        }
+        if (count == 2) {
+            setIfWider(az, el, order[0], order[1]);
+            return count;
+        }
+
+        sort(az, el, count);
+
+        // Lower then upper hull, counter clockwise, collinear points dropped
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            while ((size >= 2) && (turn(az, el, hull[size - 2], hull[size - 1], order[i]) <= 0d)) size--;
+            hull[size++] = order[i];
+        }
+        final int lowerSize = size + 1;
+        for (int i = count - 2; i >= 0; i--) {
+            while ((size >= lowerSize) && (turn(az, el, hull[size - 2], hull[size - 1], order[i]) <= 0d)) size--;
+            hull[size++] = order[i];
+        }
+        size--; // The last point repeats the first
+
+        if (size < 3) {
+            // Every lit sensor on one line, the ends are the widest pair
+            setIfWider(az, el, hull[0], hull[size - 1]);
+            return count;
+        }
+
+        // Rotating calipers, for each hull edge advance the opposite point
+        // while the triangle area it makes with the edge keeps growing
+        int opposite = 1;
+        for (int edge = 0; edge < size; edge++) {
+            final int a = hull[edge];
+            final int b = hull[(edge + 1) % size];
+            while (Math.abs(turn(az, el, a, b, hull[(opposite + 1) % size])) > Math.abs(turn(az, el, a, b, hull[opposite]))) {
+                opposite = (opposite + 1) % size;
+            }
+            setIfWider(az, el, a, hull[opposite]);
+            setIfWider(az, el, b, hull[opposite]);
+        }
+        return count;
+    }
+
+    private void setIfWider (double[] az, double[] el, int a, int b) {
+        final double azDiff = az[a] - az[b];
+        final double elDiff = el[a] - el[b];
+        final double separationSq = (azDiff * azDiff) + (elDiff * elDiff);
+        if ((first < 0) || (separationSq > distanceSq)) {
+            distanceSq = separationSq;
+            first = Math.min(a, b);
+            second = Math.max(a, b);
+        }
+    }
+
+    // > 0 when o, a, b turn counter clockwise
+    private static double turn (double[] az, double[] el, int o, int a, int b) {
+        return (az[a] - az[o]) * (el[b] - el[o]) - (el[a] - el[o]) * (az[b] - az[o]);
+    }
+
+    private static boolean less (double[] az, double[] el, int a, int b) {
+        return (az[a] < az[b]) || ((az[a] == az[b]) && (el[a] < el[b]));
+    }
+
+    // In place heap sort of order[0..count) by (az, el)
+    private void sort (double[] az, double[] el, int count) {
+        for (int start = count / 2 - 1; start >= 0; start--) {
+            siftDown(az, el, start, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            int swap = order[0];
+            order[0] = order[end];
+            order[end] = swap;
+            siftDown(az, el, 0, end);
+        }
+    }
+
+    private void siftDown (double[] az, double[] el, int root, int end) {
+        while (true) {
+            int child = 2 * root + 1;
+            if (child >= end) return;
+            if ((child + 1 < end) && less(az, el, order[child], order[child + 1])) child++;
+            if (!less(az, el, order[root], order[child])) return;
+            int swap = order[root];
+            order[root] = order[child];
+            order[child] = swap;
+            root = child;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package chartadvancedscatter;
+
+// Raw lighthouse events packed into one long so they can pass through a
+// primitive ring without boxing:
+//   bits 63-62  kind (HIT or SYNC)
+//   bit  61     axis (AXIS_HORIZONTAL or AXIS_VERTICAL)
+//   bits 60-52  sensor (0..511, zero for a sync)
+//   bits 51-40  device (0..4095)
+//   bits 39-0   timestamp in ticks of the receiver clock, wrapping
+// A sync marks the start of one rotor's sweep, a hit is a sensor crossed by
+// it. -1 is never a valid event and is used for an empty slot.
+public final class SweepEvent {
+    public static final int HIT = 0;
+    public static final int SYNC = 1;
+    public static final int AXIS_HORIZONTAL = 0; // Sweeps across y, gives az
+    public static final int AXIS_VERTICAL = 1; // Sweeps across z, gives el
+    public static final int MAX_SENSORS = 512;
+    public static final int MAX_DEVICES = 4096;
+    public static final long TICK_MASK = (1L << 40) - 1L;
+    public static final long NONE = -1L;
+
+    private SweepEvent () {
+    }
+
+    public static long hit (int device, int sensor, int axis, long tick) {
+        return pack(HIT, device, sensor, axis, tick);
+    }
+
+    public static long sync (int device, int axis, long tick) {
+        return pack(SYNC, device, 0, axis, tick);
+    }
+
+    private static long pack (int kind, int device, int sensor, int axis, long tick) {
+        return ((long) kind << 62) | ((long) (axis & 1) << 61) | ((long) (sensor & 0x1ff) << 52)
+                | ((long) (device & 0xfff) << 40) | (tick & TICK_MASK);
+    }
+
+    public static int kind (long event) {
+        return (int) (event >>> 62);
+    }
+
+    public static int axis (long event) {
+        return (int) (event >>> 61) & 1;
+    }
+
+    public static int sensor (long event) {
+        return (int) (event >>> 52) & 0x1ff;
+    }
+
+    public static int device (long event) {
+        return (int) (event >>> 40) & 0xfff;
+    }
+
+    public static long tick (long event) {
+        return event & TICK_MASK;
+    }
+
+    // Ticks from earlier to later allowing for one wrap of the clock
+    public static long elapsed (long earlier, long later) {
+        return (later - earlier) & TICK_MASK;
+    }
+}
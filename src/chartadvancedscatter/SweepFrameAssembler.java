@@ -0,0 +1,156 @@
+package chartadvancedscatter;
+
+// Turns a stream of SweepEvents into frames of sensor angles, for as many
+// devices as there are clusters. Each device alternates a horizontal and a
+// vertical sweep, each opened by a sync. A hit's angle is its time since the
+// sync as a fraction of a rotor revolution, zero a quarter turn after the
+// sync. Once a device's vertical sweep is closed by the next horizontal sync
+// the sensors hit in both sweeps are written into its SensorCluster, in the
+// az/el convention of getLitSensorAngles, and the listener is called. All
+// state is preallocated per device, so assembling allocates nothing.
+//
+// Meant to be the consumer of a SweepRing, on a single thread.
+public class SweepFrameAssembler implements SweepRing.EventHandler {
+    // Called on the assembling thread with a complete frame in cluster
+    public interface FrameListener {
+        void onFrame(int device, SensorCluster cluster, long tick);
+    }
+
+    public static final double DEFAULT_TICKS_PER_REVOLUTION = 48e6d / 60d; // 48MHz clock, 60Hz rotors
+
+    private static final int NO_SWEEP = -1;
+
+    public final double ticksPerRevolution;
+    private final double radiansPerTick;
+    private final long quarterTurn;
+    private final SensorCluster[] clusters;
+    private final FrameListener listener;
+
+    // Per device
+    private final long[] syncTick;
+    private final int[] openAxis;
+    private final boolean[] horizontalDone;
+    private final double[][] sweepAngle; // Horizontal then vertical, one per sensor
+    private final long[][] hitMask; // Horizontal then vertical words
+
+    public long eventsSeen;
+    public long eventsDropped; // Unknown device or sensor, no open sweep, or a repeat hit
+    public long framesAssembled;
+
+    public SweepFrameAssembler(SensorCluster[] clusters, FrameListener listener) {
+        this(clusters, listener, DEFAULT_TICKS_PER_REVOLUTION);
+    }
+
+    public SweepFrameAssembler(SensorCluster[] clusters, FrameListener listener, double ticksPerRevolution) {
+        if (clusters.length > SweepEvent.MAX_DEVICES) {
+            throw new IllegalArgumentException("At most " + SweepEvent.MAX_DEVICES + " devices can share a stream");
+        }
+        this.clusters = clusters;
+        this.listener = listener;
+        this.ticksPerRevolution = ticksPerRevolution;
+        radiansPerTick = 2d * Math.PI / ticksPerRevolution;
+        quarterTurn = Math.round(ticksPerRevolution / 4d);
+        syncTick = new long[clusters.length];
+        openAxis = new int[clusters.length];
+        horizontalDone = new boolean[clusters.length];
+        sweepAngle = new double[clusters.length][];
+        hitMask = new long[clusters.length][];
+        for (int device = 0; device < clusters.length; device++) {
+            openAxis[device] = NO_SWEEP;
+            sweepAngle[device] = new double[2 * clusters[device].size];
+            hitMask[device] = new long[2 * clusters[device].visible.length];
+        }
+    }
+
+    public void onEvent(long event) {
+        eventsSeen++;
+        final int device = SweepEvent.device(event);
+        if (device >= clusters.length) {
+            eventsDropped++;
+            return;
+        }
+        final int axis = SweepEvent.axis(event);
+        if (SweepEvent.kind(event) == SweepEvent.SYNC) {
+            sync(device, axis, SweepEvent.tick(event));
+            return;
+        }
+
+        final int sensor = SweepEvent.sensor(event);
+        final int size = clusters[device].size;
+        final int words = clusters[device].visible.length;
+        final long[] mask = hitMask[device];
+        final int word = axis * words + (sensor >>> 6);
+        if ((openAxis[device] != axis) || (sensor >= size) || ((mask[word] & (1L << sensor)) != 0L)) {
+            eventsDropped++;
+            return;
+        }
+        final long ticks = SweepEvent.elapsed(syncTick[device], SweepEvent.tick(event));
+        sweepAngle[device][axis * size + sensor] = (ticks - quarterTurn) * radiansPerTick;
+        mask[word] |= 1L << sensor;
+    }
+
+    private void sync(int device, int axis, long tick) {
+        if (openAxis[device] == SweepEvent.AXIS_HORIZONTAL) {
+            horizontalDone[device] = true;
+        } else if ((openAxis[device] == SweepEvent.AXIS_VERTICAL) && horizontalDone[device]) {
+            emit(device, tick);
+            horizontalDone[device] = false;
+        }
+        // A horizontal sync starts a new frame, a vertical one only its own
+        // sweep, so a repeated vertical sweep neither keeps the last hits
+        // nor emits the same frame again
+        final long[] mask = hitMask[device];
+        final int words = clusters[device].visible.length;
+        if (axis == SweepEvent.AXIS_HORIZONTAL) {
+            for (int word = 0; word < mask.length; word++) {
+                mask[word] = 0L;
+            }
+            horizontalDone[device] = false;
+        } else {
+            for (int word = words; word < mask.length; word++) {
+                mask[word] = 0L;
+            }
+        }
+        openAxis[device] = axis;
+        syncTick[device] = tick;
+    }
+
+    // Emit a device whose vertical sweep has finished without waiting for
+    // the next sync, at the end of a stream
+    public boolean flush(int device, long tick) {
+        if ((openAxis[device] != SweepEvent.AXIS_VERTICAL) || !horizontalDone[device]) {
+            return false;
+        }
+        emit(device, tick);
+        openAxis[device] = NO_SWEEP;
+        horizontalDone[device] = false;
+        return true;
+    }
+
+    // The sweep planes put the sensor on the ray (1, tan h, tan v), so el is
+    // the vertical sweep angle and az = asin(tan h / |ray|)
+    private void emit(int device, long tick) {
+        final SensorCluster c = clusters[device];
+        final double[] angle = sweepAngle[device];
+        final long[] mask = hitMask[device];
+        final int words = c.visible.length;
+        for (int word = 0; word < words; word++) {
+            long lit = mask[word] & mask[words + word];
+            c.visible[word] = lit;
+            while (lit != 0L) {
+                final int s = (word << 6) + Long.numberOfTrailingZeros(lit);
+                lit &= lit - 1L;
+                final double tanH = Math.tan(angle[s]);
+                final double tanV = Math.tan(angle[c.size + s]);
+                c.az[s] = Math.atan2(tanH, Math.sqrt(1d + tanV*tanV));
+                c.el[s] = angle[c.size + s];
+                c.range[s] = 0d;
+            }
+        }
+        c.updateLitCount();
+        framesAssembled++;
+        if (listener != null) {
+            listener.onFrame(device, c, tick);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package chartadvancedscatter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Single producer, single consumer ring of packed SweepEvents. The slots are
+// a preallocated long[] and the two positions are only ever advanced by
+// their own thread with an ordered store, each side keeping a cached copy of
+// the other's position so it only reads the shared one when the ring looks
+// full or empty. The positions and cached copies sit 128 bytes apart in
+// their arrays so the two threads do not share a cache line. Nothing is
+// locked or allocated after construction.
+public class SweepRing {
+    // Handed every event of a drain, on the consumer thread
+    public interface EventHandler {
+        void onEvent(long event);
+    }
+
+    private final long[] slots;
+    private final int mask;
+
+    private static final int HEAD = 8; // Written by the consumer
+    private static final int TAIL = 24; // Written by the producer
+    private final AtomicLongArray positions = new AtomicLongArray(32);
+    private final long[] cached = new long[32]; // Head at TAIL for the producer, tail at HEAD for the consumer
+
+    // capacity is rounded up to a power of two
+    public SweepRing(int capacity) {
+        if ((capacity < 2) || (capacity > (1 << 30))) {
+            throw new IllegalArgumentException("Ring capacity " + capacity + " is outside 2..2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        slots = new long[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // Producer only, false when the ring is full
+    public boolean offer(long event) {
+        final long position = positions.get(TAIL);
+        if (position - cached[TAIL] >= slots.length) {
+            cached[TAIL] = positions.get(HEAD);
+            if (position - cached[TAIL] >= slots.length) {
+                return false;
+            }
+        }
+        slots[(int) position & mask] = event;
+        positions.lazySet(TAIL, position + 1);
+        return true;
+    }
+
+    // Consumer only, SweepEvent.NONE when the ring is empty
+    public long poll() {
+        final long position = positions.get(HEAD);
+        if (position >= cached[HEAD]) {
+            cached[HEAD] = positions.get(TAIL);
+            if (position >= cached[HEAD]) {
+                return SweepEvent.NONE;
+            }
+        }
+        final long event = slots[(int) position & mask];
+        positions.lazySet(HEAD, position + 1);
+        return event;
+    }
+
+    // Consumer only, hand up to max waiting events to handler and release
+    // their slots together, returns how many there were
+    public int drain(EventHandler handler, int max) {
+        final long position = positions.get(HEAD);
+        long available = cached[HEAD] - position;
+        if (available <= 0) {
+            cached[HEAD] = positions.get(TAIL);
+            available = cached[HEAD] - position;
+            if (available <= 0) {
+                return 0;
+            }
+        }
+        final int count = (int) Math.min(available, max);
+        for (int i = 0; i < count; i++) {
+            handler.onEvent(slots[(int) (position + i) & mask]);
+        }
+        positions.lazySet(HEAD, position + count);
+        return count;
+    }
+
+    // Either side, only a snapshot while the other is running
+    public int size() {
+        return (int) (positions.get(TAIL) - positions.get(HEAD));
+    }
+}
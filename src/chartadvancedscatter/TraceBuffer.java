@@ -0,0 +1,205 @@
+package chartadvancedscatter;
+
+import java.io.PrintStream;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Trace output kept off the solving threads. A trace point records a
+// message id and up to MAX_ARGS primitive values into a preallocated ring,
+// and a daemon thread formats the records and prints them in order. The
+// messages are printf formats defined once with define, the arguments are
+// all passed as doubles (ints and booleans survive the trip exactly) and
+// turned back into the types the format's kinds name.
+//
+// Trace points check a level first, see Poser.traceLevel, so tracing that
+// is off costs one branch and nothing is allocated either way on the
+// recording thread. Any number of threads can record into one buffer, a
+// record is dropped rather than waited for when the ring is full.
+public class TraceBuffer {
+    public static final int OFF = 0;
+    public static final int STAGE = 1; // A few lines per stage
+    public static final int DETAIL = 2; // Adds a line per lit sensor and IcoSphere point
+
+    public static final int MAX_ARGS = 4;
+    private static final int RECORD = MAX_ARGS + 1; // Message id, then the arguments
+    private static final long IDLE_PARK_NANOS = 100000L;
+
+    // Every buffer shares the message definitions
+    private static volatile String[] formats = new String[0];
+    private static volatile String[] kinds = new String[0];
+
+    private final PrintStream out;
+    private final int mask;
+    private final double[] data;
+    private final AtomicLongArray sequence; // Position + 1 once a slot is written, position + capacity once read
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long head; // Records printed, written only by the formatter
+    private volatile boolean closing;
+    private final Thread formatter;
+
+    // Format onto out, keeping up to capacity (rounded up to a power of two)
+    // records waiting
+    public TraceBuffer(PrintStream out, int capacity) {
+        if ((capacity < 2) || (capacity > (1 << 24))) {
+            throw new IllegalArgumentException("Trace capacity " + capacity + " is outside 2..2^24");
+        }
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.out = out;
+        mask = size - 1;
+        data = new double[size * RECORD];
+        sequence = new AtomicLongArray(size);
+        for (int slot = 0; slot < size; slot++) {
+            sequence.set(slot, slot);
+        }
+        formatter = new Thread(new Runnable() {
+            public void run() {
+                format();
+            }
+        }, "trace-formatter");
+        formatter.setDaemon(true);
+        formatter.start();
+    }
+
+    public TraceBuffer(PrintStream out) {
+        this(out, 1 << 14);
+    }
+
+    // Register a message, kinds has one character per argument of format:
+    // 'd' a double, 'i' an int, 'b' a boolean. Returns its id. A message
+    // without arguments is printed as it is rather than formatted.
+    public static synchronized int define(String format, String kinds) {
+        if (kinds.length() > MAX_ARGS) {
+            throw new IllegalArgumentException("A trace message takes at most " + MAX_ARGS + " arguments");
+        }
+        final int id = formats.length;
+        final String[] newFormats = new String[id + 1];
+        final String[] newKinds = new String[id + 1];
+        System.arraycopy(formats, 0, newFormats, 0, id);
+        System.arraycopy(TraceBuffer.kinds, 0, newKinds, 0, id);
+        newFormats[id] = format;
+        newKinds[id] = kinds;
+        TraceBuffer.kinds = newKinds;
+        formats = newFormats;
+        return id;
+    }
+
+
+    // =================================================================
+    //                           Recording
+    // =================================================================
+    public void record(int message) {
+        record(message, 0d, 0d, 0d, 0d);
+    }
+
+    public void record(int message, double a) {
+        record(message, a, 0d, 0d, 0d);
+    }
+
+    public void record(int message, double a, double b) {
+        record(message, a, b, 0d, 0d);
+    }
+
+    public void record(int message, double a, double b, double c) {
+        record(message, a, b, c, 0d);
+    }
+
+    public void record(int message, double a, double b, double c, double d) {
+        long position;
+        while (true) {
+            position = tail.get();
+            final long available = sequence.get((int) position & mask);
+            if (available < position) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if ((available == position) && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+        }
+        final int slot = (int) position & mask;
+        final int at = slot * RECORD;
+        data[at] = message;
+        data[at + 1] = a;
+        data[at + 2] = b;
+        data[at + 3] = c;
+        data[at + 4] = d;
+        sequence.lazySet(slot, position + 1);
+    }
+
+    // Records lost to a full ring
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Wait until everything recorded before the call has been printed
+    public void flush() {
+        final long target = tail.get();
+        while ((head < target) && formatter.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+        out.flush();
+    }
+
+    // Print what is waiting and stop the formatter
+    public void close() throws InterruptedException {
+        flush();
+        closing = true;
+        LockSupport.unpark(formatter);
+        formatter.join();
+    }
+
+
+    // =================================================================
+    //                           Formatting
+    // =================================================================
+    private void format() {
+        final StringBuilder text = new StringBuilder(256);
+        final Formatter line = new Formatter(text);
+        final Object[][] args = new Object[MAX_ARGS + 1][];
+        for (int count = 0; count <= MAX_ARGS; count++) {
+            args[count] = new Object[count];
+        }
+        long position = head;
+        while (true) {
+            final int slot = (int) position & mask;
+            if (sequence.get(slot) != position + 1) {
+                if (text.length() > 0) {
+                    out.print(text);
+                    out.flush();
+                    text.setLength(0);
+                }
+                head = position;
+                if (closing) return;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            final int at = slot * RECORD;
+            final int message = (int) data[at];
+            final String kind = kinds[message];
+            final Object[] values = args[kind.length()];
+            for (int arg = 0; arg < values.length; arg++) {
+                final double value = data[at + 1 + arg];
+                switch (kind.charAt(arg)) {
+                    case 'i': values[arg] = Integer.valueOf((int) value); break;
+                    case 'b': values[arg] = Boolean.valueOf(value != 0d); break;
+                    default: values[arg] = Double.valueOf(value); break;
+                }
+            }
+            sequence.lazySet(slot, position + mask + 1);
+            position++;
+            if (values.length == 0) {
+                text.append(formats[message]);
+            } else {
+                line.format(formats[message], values);
+            }
+            if (text.length() > 8192) {
+                out.print(text);
+                text.setLength(0);
+                head = position;
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package chartadvancedscatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Phaser;
+
+// Solves many tracked devices per tick on a fixed set of worker threads. Each
+// device is given to one worker when the pool starts and stays with it, so a
+// device's solver and scratch buffers are only ever touched by that thread
+// and the hot path takes no locks. A tick releases every worker through a
+// Phaser, each loads (optionally) and solves its own devices, and the tick
+// returns once all of them have arrived back at the barrier.
+//
+// The statistics are written by the workers and are read between ticks from
+// the thread calling tick, the barrier orders the two. A device whose solve
+// throws is marked invalid and counted as a failure; an Error is also
+// rethrown from tick once every worker has arrived.
+public class TrackerPool {
+    private static final int LATENCY_SAMPLES = 4096; // Recent frame latencies kept per worker
+
+    // Loads the next frame into a device's solver, called on the device's
+    // worker. Returning false skips the device for this tick.
+    public interface FrameLoader {
+        boolean load(int device, long tick);
+    }
+
+    private final int workerCount;
+    private final ArrayList<PoseSolver> pendingSolvers = new ArrayList<PoseSolver>();
+    private PoseSolver[] solvers;
+    private PoseEstimate[] results;
+    private Worker[] workers;
+    private Phaser phaser;
+    private FrameLoader frameLoader;
+    private volatile boolean stopping;
+    private long tick;
+
+    // Tick timings, coordinator only
+    private long ticks;
+    private long tickNanosTotal;
+    private long tickNanosMax;
+    private long lastTickNanos;
+
+    public TrackerPool(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("A tracker pool needs at least one worker");
+        }
+        this.workerCount = workerCount;
+    }
+
+    // One worker per available processor
+    public TrackerPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    // Add a device before the pool starts, returns its index
+    public int addDevice(PoseSolver solver) {
+        if (workers != null) {
+            throw new IllegalStateException("Devices must be added before the pool starts");
+        }
+        pendingSolvers.add(solver);
+        return pendingSolvers.size() - 1;
+    }
+
+    public TrackerPool setFrameLoader(FrameLoader loader) {
+        if (workers != null) {
+            throw new IllegalStateException("The frame loader must be set before the pool starts");
+        }
+        frameLoader = loader;
+        return this;
+    }
+
+    public int getDeviceCount() {
+        return (solvers == null) ? pendingSolvers.size() : solvers.length;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    // Deal the devices round robin to the workers and start their threads
+    public TrackerPool start() {
+        if (workers != null) {
+            throw new IllegalStateException("The pool has already started");
+        }
+        solvers = pendingSolvers.toArray(new PoseSolver[pendingSolvers.size()]);
+        results = new PoseEstimate[solvers.length];
+        for (int device = 0; device < solvers.length; device++) {
+            results[device] = new PoseEstimate();
+        }
+        phaser = new Phaser(workerCount + 1);
+        workers = new Worker[workerCount];
+        for (int index = 0; index < workerCount; index++) {
+            int owned = (solvers.length - index + workerCount - 1) / workerCount;
+            workers[index] = new Worker(index, owned);
+            for (int local = 0; local < owned; local++) {
+                workers[index].devices[local] = index + local * workerCount;
+            }
+        }
+        for (int index = 0; index < workerCount; index++) {
+            workers[index].thread.start();
+        }
+        return this;
+    }
+
+    // Solve every device once, returns the wall time of the tick in nanos.
+    // Throws IllegalStateException, after the whole tick, if a solve threw
+    // an Error.
+    public long tick() {
+        if ((workers == null) || stopping) {
+            throw new IllegalStateException("The pool is not running");
+        }
+        final long start = System.nanoTime();
+        tick++;
+        phaser.arriveAndAwaitAdvance(); // Release the workers
+        phaser.arriveAndAwaitAdvance(); // Wait for them all to finish
+        lastTickNanos = System.nanoTime() - start;
+        ticks++;
+        tickNanosTotal += lastTickNanos;
+        tickNanosMax = Math.max(tickNanosMax, lastTickNanos);
+
+        // The workers caught any Error and still arrived, hand the first on
+        Throwable error = null;
+        for (int index = 0; index < workerCount; index++) {
+            if ((error == null) && (workers[index].error != null)) {
+                error = workers[index].error;
+            }
+            workers[index].error = null;
+        }
+        if (error != null) {
+            throw new IllegalStateException("A tracker worker failed", error);
+        }
+        return lastTickNanos;
+    }
+
+    // Stop the workers after the current tick and wait for them to exit
+    public void shutdown() throws InterruptedException {
+        if ((workers == null) || stopping) {
+            return;
+        }
+        stopping = true;
+        phaser.arriveAndDeregister();
+        for (int index = 0; index < workerCount; index++) {
+            workers[index].thread.join();
+        }
+    }
+
+    public PoseEstimate getResult(int device) {
+        return results[device];
+    }
+
+
+    // =================================================================
+    //                          Statistics
+    // =================================================================
+    public long getTickCount() {
+        return ticks;
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public long getMaxTickNanos() {
+        return tickNanosMax;
+    }
+
+    public double getMeanTickNanos() {
+        return (ticks == 0) ? 0d : (double) tickNanosTotal / ticks;
+    }
+
+    public long getFramesSolved() {
+        long frames = 0;
+        for (int index = 0; index < workerCount; index++) {
+            frames += workers[index].frames;
+        }
+        return frames;
+    }
+
+    public long getFramesFailed() {
+        long failed = 0;
+        for (int index = 0; index < workerCount; index++) {
+            failed += workers[index].failures;
+        }
+        return failed;
+    }
+
+    // Device frames solved per second of tick wall time
+    public double getThroughput() {
+        return (tickNanosTotal == 0) ? 0d : getFramesSolved() * 1e9d / tickNanosTotal;
+    }
+
+    public double getMeanFrameNanos() {
+        long frames = 0;
+        long total = 0;
+        for (int index = 0; index < workerCount; index++) {
+            frames += workers[index].frames;
+            total += workers[index].frameNanosTotal;
+        }
+        return (frames == 0) ? 0d : (double) total / frames;
+    }
+
+    public long getMaxFrameNanos() {
+        long max = 0;
+        for (int index = 0; index < workerCount; index++) {
+            max = Math.max(max, workers[index].frameNanosMax);
+        }
+        return max;
+    }
+
+    // Frame latency at fraction (0..1) over the most recent samples of every
+    // worker. Sorts a copy, so it is for reporting rather than the hot path.
+    public long getFrameNanosPercentile(double fraction) {
+        int count = 0;
+        for (int index = 0; index < workerCount; index++) {
+            count += (int) Math.min(workers[index].frames, LATENCY_SAMPLES);
+        }
+        if (count == 0) {
+            return 0L;
+        }
+        long[] samples = new long[count];
+        int filled = 0;
+        for (int index = 0; index < workerCount; index++) {
+            int kept = (int) Math.min(workers[index].frames, LATENCY_SAMPLES);
+            System.arraycopy(workers[index].samples, 0, samples, filled, kept);
+            filled += kept;
+        }
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(fraction * count) - 1;
+        return samples[Math.max(0, Math.min(count - 1, rank))];
+    }
+
+    public String toString() {
+        return String.format("TrackerPool(%d devices, %d workers, %d ticks, %.0f frames/s, frame mean %.1fus p99 %.1fus max %.1fus, tick mean %.1fus max %.1fus, %d failed)",
+                getDeviceCount(), workerCount, ticks, getThroughput(),
+                getMeanFrameNanos() / 1e3d, getFrameNanosPercentile(0.99d) / 1e3d, getMaxFrameNanos() / 1e3d,
+                getMeanTickNanos() / 1e3d, tickNanosMax / 1e3d, getFramesFailed());
+    }
+
+
+    private class Worker implements Runnable {
+        final Thread thread;
+        final int[] devices;
+        final long[] samples = new long[LATENCY_SAMPLES];
+
+        // Written only by this worker
+        long frames;
+        long failures;
+        long frameNanosTotal;
+        long frameNanosMax;
+        Throwable error; // First Error of the tick, cleared by tick
+
+        Worker(int index, int owned) {
+            devices = new int[owned];
+            thread = new Thread(this, "tracker-worker-" + index);
+            thread.setDaemon(true);
+        }
+
+        public void run() {
+            while (true) {
+                phaser.arriveAndAwaitAdvance();
+                if (stopping) {
+                    phaser.arriveAndDeregister();
+                    return;
+                }
+                final long currentTick = tick;
+                for (int local = 0; local < devices.length; local++) {
+                    solveDevice(devices[local], currentTick);
+                }
+                phaser.arriveAndAwaitAdvance();
+            }
+        }
+
+        private void solveDevice(int device, long currentTick) {
+            final long start = System.nanoTime();
+            try {
+                if ((frameLoader != null) && !frameLoader.load(device, currentTick)) {
+                    return;
+                }
+                solvers[device].solve(results[device]);
+            } catch (RuntimeException failed) {
+                // One bad frame must not stall the other devices
+                results[device].setInvalid();
+                failures++;
+            } catch (Throwable fatal) {
+                // Nor may an Error, which would stop this worker arriving at
+                // the barrier and hang tick, so keep it for tick to rethrow
+                results[device].setInvalid();
+                failures++;
+                if (error == null) error = fatal;
+            }
+            final long elapsed = System.nanoTime() - start;
+            samples[(int) (frames % LATENCY_SAMPLES)] = elapsed;
+            frames++;
+            frameNanosTotal += elapsed;
+            frameNanosMax = Math.max(frameNanosMax, elapsed);
+        }
+    }
+}